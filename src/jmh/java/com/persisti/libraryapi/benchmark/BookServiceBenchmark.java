@@ -0,0 +1,54 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BookServiceBenchmark {
+
+    private static final AtomicLong NEW_ISBN = new AtomicLong(9_000_000_000_000L);
+
+    @Benchmark
+    public Page<Book> findByTitleContaining(LibraryState state) {
+        Book filter = Book.builder().title("tle " + ThreadLocalRandom.current().nextInt(state.books)).build();
+        return state.bean(BookService.class).find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Book> findByAuthor(LibraryState state) {
+        Book filter = Book.builder().author("author " + ThreadLocalRandom.current().nextInt(1000)).build();
+        return state.bean(BookService.class).find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Optional<Book> getBookByIsbn(LibraryState state) {
+        return state.bean(BookService.class)
+                .getBookByIsbn(LibraryState.isbn(ThreadLocalRandom.current().nextInt(state.books)));
+    }
+
+    @Benchmark
+    public Book save(LibraryState state) {
+        Book book = Book.builder()
+                .title("Benchmark")
+                .author("Benchmark")
+                .isbn(String.valueOf(NEW_ISBN.incrementAndGet()))
+                .build();
+        return state.bean(BookService.class).save(book);
+    }
+}
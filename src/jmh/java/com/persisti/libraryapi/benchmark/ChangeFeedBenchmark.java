@@ -0,0 +1,77 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.ChangeFeedService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a consumer pays to catch up with a handful of updated books: reading the change feed from its
+ * last offset against rescanning the whole catalog by keyset to spot what moved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ChangeFeedBenchmark {
+
+    private static final int CHANGES = 20;
+    private static final int PAGE = 500;
+
+    private long offset;
+
+    @Setup(Level.Iteration)
+    public void change(LibraryState state) {
+        ChangeFeedService changeFeed = state.bean(ChangeFeedService.class);
+        BookService bookService = state.bean(BookService.class);
+        changeFeed.sequence();
+        for (List<OutboxEvent> seen = changeFeed.read(offset, PAGE); !seen.isEmpty();
+             seen = changeFeed.read(offset, PAGE)) {
+            offset = seen.get(seen.size() - 1).getPosition();
+        }
+        for (int i = 0; i < CHANGES; i++) {
+            long id = 1L + ThreadLocalRandom.current().nextInt(state.books);
+            Book book = bookService.getById(id).orElseThrow(IllegalStateException::new);
+            bookService.update(book.toBuilder().title("Changed " + i).build());
+        }
+        changeFeed.sequence();
+    }
+
+    @Benchmark
+    public List<OutboxEvent> readFeed(LibraryState state) {
+        return state.bean(ChangeFeedService.class).read(offset, PAGE);
+    }
+
+    @Benchmark
+    public long rescanCatalog(LibraryState state) {
+        BookService bookService = state.bean(BookService.class);
+        Book filter = new Book();
+        long seen = 0;
+        Long lastId = null;
+        Slice<Book> page;
+        do {
+            page = bookService.findAfter(filter, lastId, PAGE);
+            seen += page.getNumberOfElements();
+            if (page.hasContent()) {
+                lastId = page.getContent().get(page.getNumberOfElements() - 1).getId();
+            }
+        } while (page.hasNext());
+        return seen;
+    }
+}
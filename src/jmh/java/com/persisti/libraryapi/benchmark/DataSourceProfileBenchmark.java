@@ -0,0 +1,75 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.exception.BusinessException;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.model.repository.BookRepository;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same concurrent read and write mix against the default in-memory setup and against the
+ * performance profile, where reads go through the replica pool and writes through the primary.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+public class DataSourceProfileBenchmark {
+
+    @Benchmark
+    public Object defaultProfile(LibraryState state) {
+        return mixed(state);
+    }
+
+    @Benchmark
+    public Object performanceProfile(PerformanceLibraryState state) {
+        return mixed(state);
+    }
+
+    /**
+     * Nine listing reads for every loan borrowed and returned.
+     */
+    private static Object mixed(LibraryState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextInt(10) > 0) {
+            if (random.nextBoolean()) {
+                Page<Book> books = state.bean(BookService.class).find(
+                        Book.builder().author("Author " + random.nextInt(1000)).build(), PageRequest.of(0, 20));
+                return books;
+            }
+            Page<LoanSummary> loans = state.bean(LoanService.class).find(
+                    LoanFilterDTO.builder().customer("customer" + random.nextInt(5000)).build(), PageRequest.of(0, 20));
+            return loans;
+        }
+        LoanService loanService = state.bean(LoanService.class);
+        try {
+            Loan loan = loanService.save(Loan.builder()
+                    .book(state.bean(BookRepository.class).getOne(1L + random.nextInt(state.books)))
+                    .customer("mixed")
+                    .customerEmail("mixed@email.com")
+                    .loanDate(LocalDate.now())
+                    .build());
+            loan.setReturned(true);
+            return loanService.update(loan);
+        } catch (BusinessException e) {
+            return null;
+        }
+    }
+}
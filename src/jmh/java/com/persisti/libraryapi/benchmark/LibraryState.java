@@ -0,0 +1,104 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.LibraryApiApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application against an embedded H2 database seeded with {@code books} books and
+ * {@code loans} returned loans, shared by every benchmark thread of a trial.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    private static final int SEED_BATCH = 5_000;
+
+    @Param({"10000"})
+    public int books;
+
+    @Param({"1000"})
+    public int loans;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void boot() {
+        context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .web(webApplicationType())
+                .profiles(profiles())
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "spring.boot.admin.client.enabled=false",
+                        "logging.file=",
+                        "logging.level.root=WARN")
+                .properties(extraProperties())
+                .run();
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected String[] profiles() {
+        return new String[0];
+    }
+
+    protected String[] extraProperties() {
+        return new String[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public static String isbn(long index) {
+        return String.format("%013d", index);
+    }
+
+    private void seed(JdbcTemplate jdbc) {
+        List<Object[]> rows = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < books; i++) {
+            rows.add(new Object[]{i + 1L, "Title " + i, "Author " + (i % 1000), isbn(i)});
+            if (rows.size() == SEED_BATCH || i == books - 1) {
+                jdbc.batchUpdate("INSERT INTO book (id, title, author, isbn, disponivel, versao, atualizado_em) " +
+                        "VALUES (?, ?, ?, ?, TRUE, 0, CURRENT_TIMESTAMP)", rows);
+                rows.clear();
+            }
+        }
+        // leave a full allocation block above the seeded ids for the pooled id generator
+        jdbc.execute("ALTER SEQUENCE book_seq RESTART WITH " + (books + 101L));
+
+        Date loanDate = Date.valueOf(LocalDate.now().minusDays(30));
+        long firstBookId = 1L;
+        for (int i = 0; i < loans; i++) {
+            rows.add(new Object[]{i + 1L, "customer" + (i % 5000), "customer" + (i % 5000) + "@email.com",
+                    firstBookId + (i % books), loanDate, true});
+            if (rows.size() == SEED_BATCH || i == loans - 1) {
+                jdbc.batchUpdate("INSERT INTO loan (id, cliente, customer_email, id_book, data_emprestimo, devolvido) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        jdbc.execute("ALTER SEQUENCE loan_seq RESTART WITH " + (loans + 101L));
+    }
+}
@@ -0,0 +1,80 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.LoanBatchItemDTO;
+import com.persisti.libraryapi.api.dto.LoanBatchResultDTO;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.repository.BookRepository;
+import com.persisti.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Borrows and returns {@code batchSize} distinct books per invocation, either through the single-item
+ * save/update path or through the batch endpoints' service methods. Each invocation takes the next
+ * window of the catalog, and every book is returned before the invocation ends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanBatchBenchmark {
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private long nextBook;
+
+    @Benchmark
+    public int singleItems(LibraryState state) {
+        LoanService loanService = state.bean(LoanService.class);
+        int returned = 0;
+        for (Loan loan : window(state)) {
+            Loan saved = loanService.save(loan);
+            saved.setReturned(true);
+            loanService.update(saved);
+            returned++;
+        }
+        return returned;
+    }
+
+    @Benchmark
+    public long batch(LibraryState state) {
+        LoanService loanService = state.bean(LoanService.class);
+        LoanBatchResultDTO created = loanService.saveAll(window(state));
+        List<Long> ids = new ArrayList<>(batchSize);
+        for (LoanBatchItemDTO item : created.getItems()) {
+            if (item.getId() != null) {
+                ids.add(item.getId());
+            }
+        }
+        return loanService.returnAll(ids).getSucceeded();
+    }
+
+    private List<Loan> window(LibraryState state) {
+        List<Loan> loans = new ArrayList<>(batchSize);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < batchSize; i++) {
+            long bookId = 1 + (nextBook++ % state.books);
+            loans.add(Loan.builder()
+                    .book(state.bean(BookRepository.class).getOne(bookId))
+                    .customer("batch")
+                    .customerEmail("batch@email.com")
+                    .loanDate(today)
+                    .build());
+        }
+        return loans;
+    }
+}
@@ -0,0 +1,68 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loan searches with one or several filters; LoanSearchTest checks that each of them is planned on an index.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanSearchBenchmark {
+
+    @Benchmark
+    public Page<LoanSummary> findByCustomer(LibraryState state) {
+        return find(state, LoanFilterDTO.builder()
+                .customer("customer" + ThreadLocalRandom.current().nextInt(5000))
+                .includeHistory(false)
+                .build());
+    }
+
+    @Benchmark
+    public Page<LoanSummary> findByIsbnAndReturned(LibraryState state) {
+        return find(state, LoanFilterDTO.builder()
+                .isbn(LibraryState.isbn(ThreadLocalRandom.current().nextInt(state.books)))
+                .returned(true)
+                .includeHistory(false)
+                .build());
+    }
+
+    @Benchmark
+    public Page<LoanSummary> findByIsbnOrCustomer(LibraryState state) {
+        int index = ThreadLocalRandom.current().nextInt(state.books);
+        return find(state, LoanFilterDTO.builder()
+                .isbn(LibraryState.isbn(index))
+                .customer("customer" + (index % 5000))
+                .includeHistory(false)
+                .build());
+    }
+
+    @Benchmark
+    public Page<LoanSummary> findByCustomerAndDateRange(LibraryState state) {
+        LocalDate today = LocalDate.now();
+        return find(state, LoanFilterDTO.builder()
+                .customer("customer" + ThreadLocalRandom.current().nextInt(5000))
+                .loanDateFrom(today.minusDays(60))
+                .loanDateTo(today)
+                .build());
+    }
+
+    private static Page<LoanSummary> find(LibraryState state, LoanFilterDTO filter) {
+        return state.bean(LoanService.class).find(filter, PageRequest.of(0, 20));
+    }
+}
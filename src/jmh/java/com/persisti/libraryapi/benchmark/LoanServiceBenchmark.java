@@ -0,0 +1,70 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.exception.BusinessException;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanServiceBenchmark {
+
+    /**
+     * Loans a random book and returns it straight away, so the catalog never runs out of
+     * available books and every invocation goes through the admission check and the insert.
+     * With several benchmark threads two of them may pick the same book; the losing admission is
+     * counted like any other invocation.
+     */
+    @Benchmark
+    public Loan saveAndReturn(LibraryState state) {
+        LoanService loanService = state.bean(LoanService.class);
+        Book book = randomBook(state);
+        try {
+            Loan loan = loanService.save(Loan.builder()
+                    .book(book)
+                    .customer("benchmark")
+                    .customerEmail("benchmark@email.com")
+                    .loanDate(LocalDate.now())
+                    .build());
+            loan.setReturned(true);
+            return loanService.update(loan);
+        } catch (BusinessException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Page<LoanSummary> findByCustomer(LibraryState state) {
+        LoanFilterDTO filter = LoanFilterDTO.builder()
+                .customer("customer" + ThreadLocalRandom.current().nextInt(5000))
+                .build();
+        return state.bean(LoanService.class).find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<LoanSummary> getLoansByBook(LibraryState state) {
+        return state.bean(LoanService.class).getLoansByBook(randomBook(state), true, PageRequest.of(0, 20));
+    }
+
+    private Book randomBook(LibraryState state) {
+        String isbn = LibraryState.isbn(ThreadLocalRandom.current().nextInt(state.books));
+        return state.bean(BookService.class).getBookByIsbn(isbn).orElseThrow(IllegalStateException::new);
+    }
+}
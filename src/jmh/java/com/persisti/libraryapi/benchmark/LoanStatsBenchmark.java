@@ -0,0 +1,69 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.model.entity.BookLoanStats;
+import com.persisti.libraryapi.model.projection.LoanStatsOverview;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.service.LoanService;
+import com.persisti.libraryapi.service.LoanStatisticsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard numbers served from the maintained statistics against the previous way of getting them:
+ * paging through the loan listing and counting client-side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoanStatsBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * The seeded loans bypass LoanService, so the summary tables are built by a full recompute.
+     */
+    @Setup(Level.Trial)
+    public void recompute(LibraryState state) {
+        state.bean(LoanStatisticsService.class).recompute();
+    }
+
+    @Benchmark
+    public LoanStatsOverview overview(LibraryState state) {
+        return state.bean(LoanStatisticsService.class).getOverview();
+    }
+
+    @Benchmark
+    public BookLoanStats bookStats(LibraryState state) {
+        return state.bean(LoanStatisticsService.class).getBookStats(1L + ThreadLocalRandom.current().nextInt(state.books));
+    }
+
+    @Benchmark
+    public long activeLoansByPaging(LibraryState state) {
+        LoanService loanService = state.bean(LoanService.class);
+        LoanFilterDTO filter = LoanFilterDTO.builder().returned(false).includeHistory(false).build();
+        long active = 0;
+        Page<LoanSummary> page;
+        int number = 0;
+        do {
+            page = loanService.find(filter, PageRequest.of(number++, PAGE_SIZE));
+            active += page.getNumberOfElements();
+        } while (page.hasNext());
+        return active;
+    }
+}
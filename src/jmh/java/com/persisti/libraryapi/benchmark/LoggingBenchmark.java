@@ -0,0 +1,86 @@
+package com.persisti.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book lookups over HTTP with every request logged to a real file, writing through on the request thread
+ * ({@code async=false}, the previous setup) against the background writer. {@code sampleRate} shows what
+ * sampling successful requests saves on top of that; the tail percentiles of SampleTime are the numbers
+ * to compare.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+public class LoggingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoggingState extends LibraryState {
+
+        @Param({"false", "true"})
+        public boolean async;
+
+        @Param({"1", "0.01"})
+        public double sampleRate;
+
+        @Override
+        protected WebApplicationType webApplicationType() {
+            return WebApplicationType.SERVLET;
+        }
+
+        @Override
+        protected String[] extraProperties() {
+            return new String[]{
+                    "server.port=0",
+                    "application.ratelimit.enabled=false",
+                    "logging.file=target/jmh-logs/" + UUID.randomUUID() + ".log",
+                    "logging.level.root=INFO",
+                    "application.logging.async.enabled=" + async,
+                    "application.logging.requests.sample-rate=" + sampleRate
+            };
+        }
+
+        String baseUrl() {
+            return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Client {
+        HttpClient http;
+
+        @Setup
+        public void setup() {
+            http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        }
+    }
+
+    @Benchmark
+    public int getBook(LoggingState state, Client client) throws IOException, InterruptedException {
+        String url = state.baseUrl() + "/api/books/" + (1 + ThreadLocalRandom.current().nextInt(state.books));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+        return client.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
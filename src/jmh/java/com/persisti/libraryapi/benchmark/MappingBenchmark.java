@@ -0,0 +1,101 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.api.mapper.BookMapper;
+import com.persisti.libraryapi.api.mapper.LoanMapper;
+import com.persisti.libraryapi.api.mapper.ModelMapperBookMapper;
+import com.persisti.libraryapi.api.mapper.ModelMapperLoanMapper;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of mapping a listing page, comparing the generated MapStruct mappers with ModelMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MappingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"mapstruct", "modelmapper"})
+    public String engine;
+
+    private BookMapper bookMapper;
+    private LoanMapper loanMapper;
+    private List<Book> books;
+    private List<Loan> loans;
+    private BookDTO filter;
+
+    @Setup
+    public void setup() {
+        if ("modelmapper".equals(engine)) {
+            ModelMapper modelMapper = new ModelMapper();
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            bookMapper = new ModelMapperBookMapper(modelMapper, registry);
+            loanMapper = new ModelMapperLoanMapper(modelMapper, registry);
+        } else {
+            bookMapper = Mappers.getMapper(BookMapper.class);
+            loanMapper = Mappers.getMapper(LoanMapper.class);
+        }
+
+        books = new ArrayList<>(PAGE_SIZE);
+        loans = new ArrayList<>(PAGE_SIZE);
+        for (long i = 0; i < PAGE_SIZE; i++) {
+            Book book = Book.builder().id(i).title("Title " + i).author("Author " + i).isbn(String.valueOf(i)).build();
+            books.add(book);
+            loans.add(Loan.builder().id(i).book(book).customer("customer" + i)
+                    .customerEmail("customer" + i + "@email.com").loanDate(LocalDate.now()).build());
+        }
+        filter = BookDTO.builder().title("Title").build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void bookPage(Blackhole blackhole) {
+        for (Book book : books) {
+            blackhole.consume(bookMapper.toDto(book));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGE_SIZE)
+    public void loanPage(Blackhole blackhole) {
+        for (Loan loan : loans) {
+            blackhole.consume(loanMapper.toDto(loan));
+        }
+    }
+
+    @Benchmark
+    public Book filter() {
+        return bookMapper.toEntity(filter);
+    }
+
+    @Benchmark
+    public LoanDTO singleLoan() {
+        return loanMapper.toDto(loans.get(0));
+    }
+}
@@ -0,0 +1,26 @@
+package com.persisti.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.UUID;
+
+/**
+ * {@link LibraryState} booted with the performance profile: tuned pools, batching and read-only routing
+ * to the replica pool, over a fresh file-backed H2 database per trial.
+ */
+@State(Scope.Benchmark)
+public class PerformanceLibraryState extends LibraryState {
+
+    @Override
+    protected String[] profiles() {
+        return new String[]{"performance"};
+    }
+
+    @Override
+    protected String[] extraProperties() {
+        return new String[]{
+                "application.datasource.path=target/jmh-db/" + UUID.randomUUID()
+        };
+    }
+}
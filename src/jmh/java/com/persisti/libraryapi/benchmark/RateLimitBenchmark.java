@@ -0,0 +1,72 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.persisti.libraryapi.config.ratelimit.AdaptiveConcurrencyLimiter;
+import com.persisti.libraryapi.config.ratelimit.ClientBuckets;
+import com.persisti.libraryapi.config.ratelimit.RateLimitProperties;
+import com.persisti.libraryapi.config.ratelimit.RequestTier;
+import com.persisti.libraryapi.config.ratelimit.TokenBucket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of an admission decision in the rate limit filter under contention: one bucket hammered by
+ * every thread, buckets spread over many clients, and a slot of the concurrency limiter taken and released.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@State(Scope.Benchmark)
+public class RateLimitBenchmark {
+
+    @Param({"100000"})
+    public int clients;
+
+    private TokenBucket bucket;
+    private ClientBuckets buckets;
+    private AdaptiveConcurrencyLimiter limiter;
+    private String[] clientKeys;
+
+    @Setup
+    public void setup() {
+        bucket = new TokenBucket(1_000_000, 1_000);
+        buckets = new ClientBuckets(new RateLimitProperties());
+        limiter = new AdaptiveConcurrencyLimiter(100, 10, 400, 2.0, new double[]{1.0, 0.9, 0.7});
+        clientKeys = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientKeys[i] = "key:client" + i;
+        }
+    }
+
+    @Benchmark
+    public long sharedBucket() {
+        return bucket.tryAcquire();
+    }
+
+    @Benchmark
+    public long perClientBuckets() {
+        return buckets.tryAcquire(clientKeys[ThreadLocalRandom.current().nextInt(clients)], RequestTier.READ);
+    }
+
+    @Benchmark
+    public boolean concurrencySlot() {
+        boolean admitted = limiter.tryAcquire(RequestTier.READ);
+        if (admitted) {
+            limiter.release(1_000_000L + ThreadLocalRandom.current().nextInt(1_000_000));
+        }
+        return admitted;
+    }
+}
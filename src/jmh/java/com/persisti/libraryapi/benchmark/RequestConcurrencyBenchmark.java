@@ -0,0 +1,61 @@
+package com.persisti.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives more concurrent clients than Tomcat has worker threads against database-bound listing endpoints,
+ * comparing the platform thread pool with the virtual thread execution mode. Run with {@code -prof gc}
+ * to compare allocation and heap use between the two modes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(400)
+public class RequestConcurrencyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Client {
+        HttpClient http;
+
+        @Setup
+        public void setup() {
+            http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        }
+    }
+
+    @Benchmark
+    public int loansByCustomer(WebLibraryState state, Client client) throws IOException, InterruptedException {
+        return get(client, state.baseUrl() + "/api/loans?customer=customer"
+                + ThreadLocalRandom.current().nextInt(5000) + "&isbn=");
+    }
+
+    @Benchmark
+    public int booksByAuthor(WebLibraryState state, Client client) throws IOException, InterruptedException {
+        return get(client, state.baseUrl() + "/api/books?author=author%20"
+                + ThreadLocalRandom.current().nextInt(1000) + "&sort=id");
+    }
+
+    private int get(Client client, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(30)).GET().build();
+        return client.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
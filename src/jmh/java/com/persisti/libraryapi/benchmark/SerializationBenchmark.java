@@ -0,0 +1,104 @@
+package com.persisti.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.api.serializer.PageSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CPU per serialized loan page for each response format: the previous reflective {@code PageImpl} JSON,
+ * the lean page envelope, the envelope with Afterburner, and the Smile and CBOR encodings. Setup prints
+ * the bytes on the wire of one page for every format, raw and gzipped as server compression would send it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"pageimpl-json", "json", "afterburner-json", "smile", "cbor"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private Page<LoanDTO> page;
+
+    @Setup
+    public void setup() throws IOException {
+        page = page(pageSize);
+        mapper = mapper(format);
+        byte[] bytes = mapper.writeValueAsBytes(page);
+        System.out.printf("%n%s, %d loans: %d bytes, %d gzipped%n", format, pageSize, bytes.length, gzip(bytes).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    private static ObjectMapper mapper(String format) {
+        JsonFactory factory = "smile".equals(format) ? new SmileFactory()
+                : "cbor".equals(format) ? new CBORFactory()
+                : new JsonFactory();
+        ObjectMapper mapper = new ObjectMapper(factory);
+        if (!"pageimpl-json".equals(format)) {
+            mapper.registerModule(new SimpleModule().addSerializer(new PageSerializer()));
+        }
+        if (!"pageimpl-json".equals(format) && !"json".equals(format)) {
+            mapper.registerModule(new AfterburnerModule());
+        }
+        return mapper;
+    }
+
+    private static Page<LoanDTO> page(int size) {
+        List<LoanDTO> loans = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String isbn = LibraryState.isbn(i);
+            loans.add(LoanDTO.builder()
+                    .id((long) i)
+                    .isbn(isbn)
+                    .customer("customer" + i)
+                    .email("customer" + i + "@email.com")
+                    .book(BookDTO.builder().id((long) i).title("Title " + i).author("Author " + i)
+                            .isbn(isbn).available(Boolean.FALSE).build())
+                    .build());
+        }
+        return new PageImpl<>(loans, PageRequest.of(3, size), 10_000);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
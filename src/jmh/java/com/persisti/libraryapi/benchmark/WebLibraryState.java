@@ -0,0 +1,35 @@
+package com.persisti.libraryapi.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.boot.WebApplicationType;
+
+/**
+ * {@link LibraryState} with the embedded web server listening on a random port. Rate limiting is off: every
+ * benchmark thread comes from the same client address.
+ */
+@State(Scope.Benchmark)
+public class WebLibraryState extends LibraryState {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Override
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.SERVLET;
+    }
+
+    @Override
+    protected String[] extraProperties() {
+        return new String[]{
+                "server.port=0",
+                "application.ratelimit.enabled=false",
+                "application.execution.virtual-threads.enabled=" + virtualThreads
+        };
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+}
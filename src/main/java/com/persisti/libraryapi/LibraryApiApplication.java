@@ -1,6 +1,5 @@
 package com.persisti.libraryapi;
 
-//import com.persisti.libraryapi.service.EmailService;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -11,6 +10,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 @SpringBootApplication
+@EnableScheduling
 public class LibraryApiApplication {
 
 
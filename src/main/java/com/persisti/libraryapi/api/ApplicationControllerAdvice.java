@@ -2,6 +2,8 @@ package com.persisti.libraryapi.api;
 
 import com.persisti.libraryapi.api.exception.ApiErrors;
 import com.persisti.libraryapi.exception.BusinessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -11,6 +13,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletRequest;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
@@ -31,4 +35,17 @@ public class ApplicationControllerAdvice {
     public ResponseEntity handleResponseStatusException(ResponseStatusException exception){
         return new ResponseEntity(new ApiErrors(exception), exception.getStatus());
     }
+
+    /**
+     * A write lost against a concurrent one: a failed precondition when the client sent If-Match,
+     * a conflict otherwise.
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity handleOptimisticLockingFailure(OptimisticLockingFailureException exception,
+                                                         HttpServletRequest request){
+        HttpStatus status = request.getHeader(HttpHeaders.IF_MATCH) != null
+                ? HttpStatus.PRECONDITION_FAILED
+                : HttpStatus.CONFLICT;
+        return new ResponseEntity(new ApiErrors("Resource was modified concurrently"), status);
+    }
 }
@@ -0,0 +1,68 @@
+package com.persisti.libraryapi.api.conditional;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.projection.BookCatalogVersion;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Validators for book resources, one per {@link Variant}. A single book is tagged with its id, its
+ * {@code @Version} and the variant, and the tag is strong so it can be sent back in If-Match. A listing
+ * gets a weak tag over a digest of the catalog version, the query string and the variant, so the same page
+ * of the same catalog always gets the same tag, any committed write changes it, and the connector is
+ * still free to compress it.
+ */
+public final class ETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK = "W/";
+
+    private ETags() {
+    }
+
+    public static String of(Book book, Variant variant) {
+        return quote(version(book) + "-" + variant.key());
+    }
+
+    public static String of(BookCatalogVersion version, String query, Variant variant) {
+        String key = version.getRevision() + ":" + version.getIndexGeneration() + ":" + (query == null ? "" : query)
+                + ":" + variant.key();
+        return WEAK + quote(DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static long lastModified(Book book) {
+        return millis(book.getLastModified());
+    }
+
+    /**
+     * Strong comparison of an If-Match header against the current version of the book. A tag of any variant
+     * of that version matches, as the client may write in another format than it read; weak tags never do.
+     */
+    public static boolean matches(String ifMatch, Book book) {
+        if (ifMatch.trim().equals(ANY)) {
+            return true;
+        }
+        String prefix = "\"" + version(book) + "-";
+        for (String candidate : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+            if (candidate.trim().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String version(Book book) {
+        return book.getId() + "-" + book.getVersion();
+    }
+
+    private static long millis(Instant instant) {
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+}
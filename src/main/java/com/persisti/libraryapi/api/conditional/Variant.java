@@ -0,0 +1,83 @@
+package com.persisti.libraryapi.api.conditional;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The representation a request negotiates: the format the message converters pick from its Accept header
+ * and, when server compression is on, whether the connector may gzip the body. JSON, Smile and CBOR bodies,
+ * compressed or not, are different bytes, so every variant of a resource needs its own tag. Responses carry
+ * {@link #VARY} for the format; the connector itself adds Accept-Encoding to the responses it may compress.
+ */
+public final class Variant {
+
+    public static final String VARY = HttpHeaders.ACCEPT;
+
+    private static final List<MediaType> PRODUCIBLE = Arrays.asList(MediaType.APPLICATION_JSON,
+            new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR);
+    private static final String GZIP = "gzip";
+
+    private final MediaType mediaType;
+    private final boolean gzip;
+
+    private Variant(MediaType mediaType, boolean gzip) {
+        this.mediaType = mediaType;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Picks the producible format the same way the converters do: the most specific, highest quality
+     * accepted type wins and a wildcard falls back to JSON, the first converter.
+     */
+    public static Variant negotiate(List<MediaType> accepted, String acceptEncoding, boolean compression) {
+        List<MediaType> sorted = new ArrayList<>(accepted);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        return new Variant(select(sorted), compression && acceptsGzip(acceptEncoding));
+    }
+
+    String key() {
+        return mediaType.getSubtype() + (gzip ? "-" + GZIP : "");
+    }
+
+    private static MediaType select(List<MediaType> accepted) {
+        for (MediaType candidate : accepted) {
+            if (candidate.getQualityValue() == 0) {
+                continue;
+            }
+            for (MediaType producible : PRODUCIBLE) {
+                if (candidate.isCompatibleWith(producible)) {
+                    return producible;
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : StringUtils.commaDelimitedListToStringArray(acceptEncoding)) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(GZIP) && !rejected(parts)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean rejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].replace(" ", "");
+            if (parameter.matches("(?i)q=0(\\.0{0,3})?")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
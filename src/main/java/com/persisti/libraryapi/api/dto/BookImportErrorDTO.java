@@ -0,0 +1,18 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class BookImportErrorDTO {
+
+    private long row;
+
+    private String isbn;
+
+    private String message;
+}
@@ -0,0 +1,28 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class BookImportResultDTO {
+
+    private long received;
+
+    private long imported;
+
+    private long failed;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    private boolean errorsTruncated;
+
+    private List<BookImportErrorDTO> errors;
+}
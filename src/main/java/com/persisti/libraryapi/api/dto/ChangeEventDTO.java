@@ -0,0 +1,28 @@
+package com.persisti.libraryapi.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ChangeEventDTO {
+
+    private long position;
+
+    private String aggregate;
+
+    private Long aggregateId;
+
+    private String type;
+
+    @JsonRawValue
+    private String payload;
+
+    private Instant createdAt;
+}
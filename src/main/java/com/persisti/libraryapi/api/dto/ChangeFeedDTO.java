@@ -0,0 +1,21 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class ChangeFeedDTO {
+
+    private List<ChangeEventDTO> events;
+
+    /**
+     * Offset to send as {@code after} on the next request.
+     */
+    private long next;
+}
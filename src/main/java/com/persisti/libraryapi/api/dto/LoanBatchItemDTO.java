@@ -0,0 +1,26 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one entry of a loan batch, in request order. {@code status} is the HTTP status the
+ * single-item endpoint would have answered for that entry.
+ */
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class LoanBatchItemDTO {
+
+    private int index;
+
+    private Long id;
+
+    private Long bookId;
+
+    private int status;
+
+    private String message;
+}
@@ -0,0 +1,24 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class LoanBatchResultDTO {
+
+    private long received;
+
+    private long succeeded;
+
+    private long failed;
+
+    private long elapsedMillis;
+
+    private List<LoanBatchItemDTO> items;
+}
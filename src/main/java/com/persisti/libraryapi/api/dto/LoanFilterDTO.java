@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
 
 @Data
 @Builder
@@ -13,4 +16,17 @@ public class LoanFilterDTO {
     private String isbn;
 
     private String customer;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate loanDateFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate loanDateTo;
+
+    private Boolean returned;
+
+    /**
+     * Whether archived loans are searched too; null means yes.
+     */
+    private Boolean includeHistory;
 }
@@ -0,0 +1,18 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class LoanStatsDTO {
+
+    private String key;
+
+    private long totalLoans;
+
+    private long activeLoans;
+}
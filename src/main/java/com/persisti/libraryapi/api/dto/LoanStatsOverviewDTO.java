@@ -0,0 +1,22 @@
+package com.persisti.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+public class LoanStatsOverviewDTO {
+
+    private long totalLoans;
+
+    private long activeLoans;
+
+    private long lateLoans;
+
+    private Instant computedAt;
+}
@@ -23,6 +23,10 @@ public class ApiErrors {
         this.errors = Arrays.asList(exception.getReason());
     }
 
+    public ApiErrors(String message) {
+        this.errors = Arrays.asList(message);
+    }
+
     public List<String> getErrors() {
         return errors;
     }
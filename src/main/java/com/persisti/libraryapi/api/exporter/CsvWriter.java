@@ -0,0 +1,63 @@
+package com.persisti.libraryapi.api.exporter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a header line and then one line per row, quoting fields the same way {@code CsvBookReader}
+ * reads them back. Null fields are written empty.
+ */
+public class CsvWriter implements Closeable {
+
+    public static final String TEXT_CSV = "text/csv";
+
+    private final Writer writer;
+
+    public CsvWriter(OutputStream out, String... header) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeLine(header);
+    }
+
+    public void write(Object... fields) {
+        try {
+            writeLine(fields);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeLine(Object[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escape(fields[i]));
+        }
+        writer.write('\n');
+    }
+
+    private static String escape(Object field) {
+        if (field == null) {
+            return "";
+        }
+        String value = field.toString();
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Flushes the buffered rows without closing the response stream.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+}
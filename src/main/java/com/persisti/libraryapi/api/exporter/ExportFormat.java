@@ -0,0 +1,45 @@
+package com.persisti.libraryapi.api.exporter;
+
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * Export body formats, picked from the Accept header: CSV when it explicitly accepts text/csv and
+ * NDJSON otherwise.
+ */
+public enum ExportFormat {
+
+    NDJSON(NdjsonWriter.APPLICATION_NDJSON, "ndjson"),
+    CSV(CsvWriter.TEXT_CSV, "csv");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String fileName(String name) {
+        return name + "." + extension;
+    }
+
+    public static ExportFormat fromAccept(String accept) {
+        if (!StringUtils.hasText(accept)) {
+            return NDJSON;
+        }
+        List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+        for (MediaType type : accepted) {
+            if (!type.isWildcardType() && type.isCompatibleWith(CSV.mediaType)) {
+                return CSV;
+            }
+        }
+        return NDJSON;
+    }
+}
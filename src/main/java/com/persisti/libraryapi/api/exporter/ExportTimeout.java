@@ -0,0 +1,37 @@
+package com.persisti.libraryapi.api.exporter;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Async timeout of export requests. A streamed export runs as an async request, and the global async
+ * timeout, which also bounds the change feed long poll, would cut it off; an export marks its request
+ * with {@link #apply} and its timeout is raised just before the body starts streaming.
+ */
+public class ExportTimeout implements CallableProcessingInterceptor {
+
+    private static final String ATTRIBUTE = ExportTimeout.class.getName();
+
+    private final long timeoutMillis;
+
+    public ExportTimeout(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static void apply(WebRequest request) {
+        request.setAttribute(ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (request instanceof AsyncWebRequest
+                && request.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            ((AsyncWebRequest) request).setTimeout(timeoutMillis);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.persisti.libraryapi.api.importer;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads {@code title,author,isbn} lines one at a time. A first line equal to that header is skipped,
+ * fields may be double quoted and lines with another number of fields yield an empty book, which the
+ * import reports as an invalid row.
+ */
+public class CsvBookReader implements Iterator<BookDTO> {
+
+    private static final String HEADER = "title,author,isbn";
+
+    private final BufferedReader reader;
+    private String line;
+
+    public CsvBookReader(InputStream body) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        this.line = reader.readLine();
+        if (line != null && line.trim().equalsIgnoreCase(HEADER)) {
+            this.line = reader.readLine();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return line != null;
+    }
+
+    @Override
+    public BookDTO next() {
+        if (line == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> fields = split(line);
+        try {
+            line = reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (fields.size() != 3) {
+            return new BookDTO();
+        }
+        return BookDTO.builder().title(fields.get(0)).author(fields.get(1)).isbn(fields.get(2)).build();
+    }
+
+    private static List<String> split(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
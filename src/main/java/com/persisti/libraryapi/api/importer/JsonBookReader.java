@@ -0,0 +1,50 @@
+package com.persisti.libraryapi.api.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.api.dto.BookDTO;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a JSON array of books one element at a time, so the request body is never materialized.
+ */
+public class JsonBookReader implements Iterator<BookDTO> {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private JsonToken next;
+
+    public JsonBookReader(ObjectMapper objectMapper, InputStream body) throws IOException {
+        this.objectMapper = objectMapper;
+        this.parser = objectMapper.getFactory().createParser(body);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of books");
+        }
+        this.next = parser.nextToken();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next == JsonToken.START_OBJECT;
+    }
+
+    @Override
+    public BookDTO next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            BookDTO book = objectMapper.readValue(parser, BookDTO.class);
+            next = parser.nextToken();
+            return book;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
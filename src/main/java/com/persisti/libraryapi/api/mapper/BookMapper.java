@@ -0,0 +1,17 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.model.entity.Book;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper
+public interface BookMapper {
+
+    BookDTO toDto(Book book);
+
+    @Mapping(target = "loans", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "lastModified", ignore = true)
+    Book toEntity(BookDTO dto);
+}
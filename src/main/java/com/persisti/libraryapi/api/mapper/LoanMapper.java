@@ -0,0 +1,22 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(uses = BookMapper.class)
+public interface LoanMapper {
+
+    @Mapping(target = "isbn", source = "book.isbn")
+    @Mapping(target = "email", source = "customerEmail")
+    LoanDTO toDto(Loan loan);
+
+    @Mapping(target = "email", source = "customerEmail")
+    @Mapping(target = "book.id", source = "bookId")
+    @Mapping(target = "book.title", source = "title")
+    @Mapping(target = "book.author", source = "author")
+    @Mapping(target = "book.isbn", source = "isbn")
+    LoanDTO toDto(LoanSummary summary);
+}
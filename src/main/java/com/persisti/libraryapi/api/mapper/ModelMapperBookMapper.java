@@ -0,0 +1,29 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.modelmapper.ModelMapper;
+
+public class ModelMapperBookMapper implements BookMapper {
+
+    private final ModelMapper modelMapper;
+    private final Timer timer;
+
+    public ModelMapperBookMapper(ModelMapper modelMapper, MeterRegistry registry) {
+        this.modelMapper = modelMapper;
+        this.timer = registry.timer(MetricsConfig.MAPPING_TIMER, "engine", "modelmapper", "type", "book");
+    }
+
+    @Override
+    public BookDTO toDto(Book book) {
+        return timer.record(() -> modelMapper.map(book, BookDTO.class));
+    }
+
+    @Override
+    public Book toEntity(BookDTO dto) {
+        return timer.record(() -> modelMapper.map(dto, Book.class));
+    }
+}
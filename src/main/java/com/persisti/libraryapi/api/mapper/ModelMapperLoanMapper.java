@@ -0,0 +1,45 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.modelmapper.ModelMapper;
+
+public class ModelMapperLoanMapper implements LoanMapper {
+
+    private final ModelMapper modelMapper;
+    private final Timer timer;
+
+    public ModelMapperLoanMapper(ModelMapper modelMapper, MeterRegistry registry) {
+        this.modelMapper = modelMapper;
+        this.timer = registry.timer(MetricsConfig.MAPPING_TIMER, "engine", "modelmapper", "type", "loan");
+    }
+
+    @Override
+    public LoanDTO toDto(Loan loan) {
+        return timer.record(() -> {
+            LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
+            loanDTO.setBook(modelMapper.map(loan.getBook(), BookDTO.class));
+            return loanDTO;
+        });
+    }
+
+    @Override
+    public LoanDTO toDto(LoanSummary summary) {
+        return timer.record(() -> {
+            LoanDTO loanDTO = modelMapper.map(summary, LoanDTO.class);
+            loanDTO.setEmail(summary.getCustomerEmail());
+            loanDTO.setBook(BookDTO.builder()
+                    .id(summary.getBookId())
+                    .title(summary.getTitle())
+                    .author(summary.getAuthor())
+                    .isbn(summary.getIsbn())
+                    .build());
+            return loanDTO;
+        });
+    }
+}
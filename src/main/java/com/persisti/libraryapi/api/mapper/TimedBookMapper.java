@@ -0,0 +1,31 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the generated MapStruct mapper's calls under the same timer as the ModelMapper fallback.
+ */
+public class TimedBookMapper implements BookMapper {
+
+    private final BookMapper delegate;
+    private final Timer timer;
+
+    public TimedBookMapper(BookMapper delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timer = registry.timer(MetricsConfig.MAPPING_TIMER, "engine", "mapstruct", "type", "book");
+    }
+
+    @Override
+    public BookDTO toDto(Book book) {
+        return timer.record(() -> delegate.toDto(book));
+    }
+
+    @Override
+    public Book toEntity(BookDTO dto) {
+        return timer.record(() -> delegate.toEntity(dto));
+    }
+}
@@ -0,0 +1,32 @@
+package com.persisti.libraryapi.api.mapper;
+
+import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records the generated MapStruct mapper's calls under the same timer as the ModelMapper fallback.
+ */
+public class TimedLoanMapper implements LoanMapper {
+
+    private final LoanMapper delegate;
+    private final Timer timer;
+
+    public TimedLoanMapper(LoanMapper delegate, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.timer = registry.timer(MetricsConfig.MAPPING_TIMER, "engine", "mapstruct", "type", "loan");
+    }
+
+    @Override
+    public LoanDTO toDto(Loan loan) {
+        return timer.record(() -> delegate.toDto(loan));
+    }
+
+    @Override
+    public LoanDTO toDto(LoanSummary summary) {
+        return timer.record(() -> delegate.toDto(summary));
+    }
+}
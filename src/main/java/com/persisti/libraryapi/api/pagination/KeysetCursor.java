@@ -0,0 +1,65 @@
+package com.persisti.libraryapi.api.pagination;
+
+import com.persisti.libraryapi.api.dto.CursorPageDTO;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque continuation token for keyset pagination. It carries the id of the last row of the previous
+ * page; an empty token starts from the beginning.
+ */
+public final class KeysetCursor {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final String PREFIX = "id:";
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        byte[] token = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0L;
+        }
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!token.startsWith(PREFIX)) {
+                throw new IllegalArgumentException(token);
+            }
+            return Long.valueOf(token.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    public static int size(int requested) {
+        if (requested < 1 || requested > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return requested;
+    }
+
+    public static <E, T> CursorPageDTO<T> page(Slice<E> slice, Function<E, Long> id, Function<E, T> mapper) {
+        List<E> rows = slice.getContent();
+        String next = slice.hasNext() && !rows.isEmpty() ? encode(id.apply(rows.get(rows.size() - 1))) : null;
+        return CursorPageDTO.<T>builder()
+                .content(rows.stream().map(mapper).collect(Collectors.toList()))
+                .size(rows.size())
+                .hasNext(slice.hasNext())
+                .nextCursor(next)
+                .build();
+    }
+}
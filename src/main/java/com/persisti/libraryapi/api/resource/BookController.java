@@ -1,27 +1,59 @@
 package com.persisti.libraryapi.api.resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.api.conditional.ETags;
+import com.persisti.libraryapi.api.conditional.Variant;
 import com.persisti.libraryapi.api.dto.BookDTO;
+import com.persisti.libraryapi.api.dto.BookImportResultDTO;
+import com.persisti.libraryapi.api.dto.CursorPageDTO;
 import com.persisti.libraryapi.api.dto.LoanDTO;
+import com.persisti.libraryapi.api.exporter.CsvWriter;
+import com.persisti.libraryapi.api.exporter.ExportFormat;
+import com.persisti.libraryapi.api.exporter.ExportTimeout;
+import com.persisti.libraryapi.api.exporter.NdjsonWriter;
+import com.persisti.libraryapi.api.importer.CsvBookReader;
+import com.persisti.libraryapi.api.importer.JsonBookReader;
+import com.persisti.libraryapi.api.mapper.BookMapper;
+import com.persisti.libraryapi.api.mapper.LoanMapper;
+import com.persisti.libraryapi.api.pagination.KeysetCursor;
 import com.persisti.libraryapi.model.entity.Book;
-import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
 import com.persisti.libraryapi.service.BookService;
 import com.persisti.libraryapi.service.LoanService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 @RestController
 @RequestMapping("/api/books")
@@ -30,89 +62,197 @@ import java.util.stream.Collectors;
 @Slf4j
 public class BookController {
 
+    private static final String TEXT_CSV = "text/csv";
+
     private final BookService service;
-    private final ModelMapper modelMapper;
+    private final BookMapper bookMapper;
+    private final LoanMapper loanMapper;
     private final LoanService loanService;
+    private final ObjectMapper objectMapper;
+    private final ContentNegotiationManager contentNegotiationManager;
+    private final ServerProperties serverProperties;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @ApiOperation("CREATE A BOOK")
     public BookDTO create(@RequestBody @Valid BookDTO dto){
-        log.info("criando livro");
-        Book entity = modelMapper.map(dto, Book.class);
+        log.debug("criando livro");
+        Book entity = bookMapper.toEntity(dto);
 
         entity = service.save(entity);
 
-        return modelMapper.map(entity, BookDTO.class);
+        return bookMapper.toDto(entity);
     }
 
-    @GetMapping("/{id}")
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, TEXT_CSV})
     @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("IMPORTS BOOKS FROM A JSON ARRAY OR CSV BODY")
+    public BookImportResultDTO importBooks(HttpServletRequest request){
+        log.debug("importando livros");
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV));
+        try (InputStream body = request.getInputStream()) {
+            Iterator<BookDTO> rows = csv ? new CsvBookReader(body) : new JsonBookReader(objectMapper, body);
+            Iterator<Book> books = StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED), false)
+                    .map(bookMapper::toEntity)
+                    .iterator();
+            return service.importBooks(books);
+        } catch (IOException | UncheckedIOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid import body: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/export")
+    @ApiOperation("EXPORTS ALL BOOKS AS NDJSON OR CSV")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept, WebRequest request){
+        log.debug("exportando livros");
+        ExportFormat format = ExportFormat.fromAccept(accept);
+        ExportTimeout.apply(request);
+        StreamingResponseBody body = out -> {
+            if (format == ExportFormat.CSV) {
+                try (CsvWriter writer = new CsvWriter(out, "id", "title", "author", "isbn", "available")) {
+                    service.exportBooks(book -> writer.write(
+                            book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getAvailable()));
+                }
+            } else {
+                try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                    service.exportBooks(book -> writer.write(bookMapper.toDto(book)));
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.builder("attachment").filename(format.fileName("books")).build().toString())
+                .body(body);
+    }
+
+    @GetMapping("/{id}")
     @ApiOperation("OBTAINS A BOOK DETAILS BY ID")
-    public BookDTO get(@PathVariable Long id){
-        log.info("obtendo detalhes de um livro");
-        return service.getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    public ResponseEntity<BookDTO> get(@PathVariable Long id, ServletWebRequest request){
+        log.debug("obtendo detalhes de um livro");
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        String etag = ETags.of(book, variant(request));
+        if (request.checkNotModified(etag, ETags.lastModified(book))) {
+            return null;
+        }
+        return withValidators(bookMapper.toDto(book), etag, ETags.lastModified(book));
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiOperation("DELETE A BOOK BY ID")
     public void delete(@PathVariable Long id){
-        log.info("deletando um livro");
+        log.debug("deletando um livro");
         Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         service.delete(book);
     }
 
     @PutMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ApiOperation("UPDATE A BOOK DETAILS BY ID")
-    public BookDTO update(@PathVariable Long id, @RequestBody @Valid BookDTO dto){
-        log.info("atualizando um livro");
-        return service.getById(id).map( book -> {
-
-            book.setAuthor(dto.getAuthor());
-            book.setTitle(dto.getTitle());
-            book = service.update(book);
-            return modelMapper.map(book, BookDTO.class);
-
-        }).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    public ResponseEntity<BookDTO> update(@PathVariable Long id, @RequestBody @Valid BookDTO dto,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          ServletWebRequest request){
+        log.debug("atualizando um livro");
+        Book cached = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (ifMatch != null && !ETags.matches(ifMatch, cached)) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book was modified");
+        }
+        // the cached instance is shared with concurrent readers, so the changes go on a copy
+        Book book = service.update(cached.toBuilder().author(dto.getAuthor()).title(dto.getTitle()).build());
+        return withValidators(bookMapper.toDto(book), ETags.of(book, variant(request)), ETags.lastModified(book));
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
     @ApiOperation("OBTAINS A LIST OF BOOKS")
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest){
-        log.info("obtendo lista de livros");
-        Book filter = modelMapper.map(dto, Book.class);
+    public ResponseEntity<Page<BookDTO>> find(BookDTO dto, Pageable pageRequest, ServletWebRequest request){
+        log.debug("obtendo lista de livros");
+        String etag = ETags.of(service.getCatalogVersion(), request.getRequest().getQueryString(), variant(request));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Book filter = bookMapper.toEntity(dto);
         Page<Book> result = service.find(filter, pageRequest);
         List<BookDTO> list = result.getContent().stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
+                .map(bookMapper::toDto)
                 .collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        return withValidators(new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements()), etag, -1);
+    }
+
+    @GetMapping(params = "cursor")
+    @ApiOperation("OBTAINS A LIST OF BOOKS BY CURSOR")
+    public ResponseEntity<CursorPageDTO<BookDTO>> findByCursor(BookDTO dto, @RequestParam String cursor,
+                                                               @RequestParam(defaultValue = "20") int size,
+                                                               ServletWebRequest request){
+        log.debug("obtendo lista de livros por cursor");
+        String etag = ETags.of(service.getCatalogVersion(), request.getRequest().getQueryString(), variant(request));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        Book filter = bookMapper.toEntity(dto);
+        Slice<Book> result = service.findAfter(filter, KeysetCursor.decode(cursor), KeysetCursor.size(size));
+        return withValidators(KeysetCursor.page(result, Book::getId, bookMapper::toDto), etag, -1);
     }
 
     @GetMapping("/{id}/loans")
     @ResponseStatus(HttpStatus.OK)
     @ApiOperation("OBTAINS A LOAN BY BOOK ID")
-    public Page<LoanDTO> loansByBook(@PathVariable Long id, Pageable pageable){
-        log.info("obtendo emprestimo por id de um livro");
+    public Page<LoanDTO> loansByBook(@PathVariable Long id,
+                                     @RequestParam(defaultValue = "true") boolean includeHistory, Pageable pageable){
+        log.debug("obtendo emprestimo por id de um livro");
         Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        Page<Loan> result = loanService.getLoansByBook(book, pageable);
+        Page<LoanSummary> result = loanService.getLoansByBook(book, includeHistory, pageable);
 
         List<LoanDTO> list = result.getContent()
                 .stream()
-                .map(loan -> {
-                    Book loanBook = loan.getBook();
-                    BookDTO bookDTO = modelMapper.map(loanBook, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(loan, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                })
+                .map(loanMapper::toDto)
                 .collect(Collectors.toList());
 
         return new PageImpl<LoanDTO>(list, pageable, result.getTotalElements());
     }
 
+    @GetMapping(value = "/{id}/loans", params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    @ApiOperation("OBTAINS A LOAN BY BOOK ID BY CURSOR")
+    public CursorPageDTO<LoanDTO> loansByBookByCursor(@PathVariable Long id, @RequestParam String cursor,
+                                                      @RequestParam(defaultValue = "20") int size,
+                                                      @RequestParam(defaultValue = "true") boolean includeHistory){
+        log.debug("obtendo emprestimo por id de um livro por cursor");
+        Book book = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Slice<LoanSummary> result = loanService.getLoansByBookAfter(book, includeHistory, KeysetCursor.decode(cursor), KeysetCursor.size(size));
+        return KeysetCursor.page(result, LoanSummary::getId, loanMapper::toDto);
+    }
+
+    /**
+     * Negotiates the variant the tags are computed for and declares on the response, 304s included, that it
+     * depends on Accept. Accept-Encoding is left to the connector, which lists it on compressible responses.
+     */
+    private Variant variant(ServletWebRequest request) {
+        Variant variant;
+        try {
+            variant = Variant.negotiate(contentNegotiationManager.resolveMediaTypes(request),
+                    request.getHeader(HttpHeaders.ACCEPT_ENCODING),
+                    Boolean.TRUE.equals(serverProperties.getCompression().getEnabled()));
+        } catch (HttpMediaTypeNotAcceptableException e) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, e.getMessage());
+        }
+        if (request.getResponse() != null) {
+            request.getResponse().addHeader(HttpHeaders.VARY, Variant.VARY);
+        }
+        return variant;
+    }
+
+    /**
+     * Listings only carry an ETag: the latest modification time of the catalog does not move when a book
+     * is deleted, so an If-Modified-Since check could answer 304 for a page that changed.
+     */
+    private static <T> ResponseEntity<T> withValidators(T body, String etag, long lastModified) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+        if (lastModified >= 0) {
+            response.lastModified(lastModified);
+        }
+        return response.body(body);
+    }
+
 }
@@ -0,0 +1,55 @@
+package com.persisti.libraryapi.api.resource;
+
+import com.persisti.libraryapi.api.dto.ChangeEventDTO;
+import com.persisti.libraryapi.api.dto.ChangeFeedDTO;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import com.persisti.libraryapi.service.ChangeFeedService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+@Api("Change feed API")
+public class ChangeFeedController {
+
+    private static final int MAX_LIMIT = 1000;
+    private static final long MAX_WAIT_MILLIS = 60_000;
+
+    private final ChangeFeedService service;
+
+    /**
+     * Long poll: answers as soon as there are changes after {@code after}, or with an empty list and the
+     * same offset once {@code waitMillis} elapsed. Consumers start from 0 and then pass back {@code next}.
+     */
+    @GetMapping
+    @ApiOperation("OBTAINS THE BOOK AND LOAN CHANGES AFTER AN OFFSET")
+    public CompletableFuture<ChangeFeedDTO> changes(@RequestParam(defaultValue = "0") long after,
+                                                    @RequestParam(defaultValue = "500") int limit,
+                                                    @RequestParam(defaultValue = "30000") long waitMillis){
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        long wait = Math.max(0, Math.min(waitMillis, MAX_WAIT_MILLIS));
+        return service.await(after, size, wait).thenApply(events -> page(after, events));
+    }
+
+    private static ChangeFeedDTO page(long after, List<OutboxEvent> events) {
+        List<ChangeEventDTO> content = events.stream()
+                .map(event -> ChangeEventDTO.builder()
+                        .position(event.getPosition())
+                        .aggregate(event.getAggregate().name())
+                        .aggregateId(event.getAggregateId())
+                        .type(event.getType().name())
+                        .payload(event.getPayload())
+                        .createdAt(event.getCreatedAt())
+                        .build())
+                .collect(Collectors.toList());
+        long next = content.isEmpty() ? after : content.get(content.size() - 1).getPosition();
+        return new ChangeFeedDTO(content, next);
+    }
+}
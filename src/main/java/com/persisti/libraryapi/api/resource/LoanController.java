@@ -1,20 +1,34 @@
 package com.persisti.libraryapi.api.resource;
 
-import com.persisti.libraryapi.api.dto.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.api.dto.CursorPageDTO;
+import com.persisti.libraryapi.api.dto.LoanBatchResultDTO;
 import com.persisti.libraryapi.api.dto.LoanDTO;
 import com.persisti.libraryapi.api.dto.LoanFilterDTO;
 import com.persisti.libraryapi.api.dto.ReturnedLoanDTO;
+import com.persisti.libraryapi.api.exporter.CsvWriter;
+import com.persisti.libraryapi.api.exporter.ExportFormat;
+import com.persisti.libraryapi.api.exporter.ExportTimeout;
+import com.persisti.libraryapi.api.exporter.NdjsonWriter;
+import com.persisti.libraryapi.api.mapper.LoanMapper;
+import com.persisti.libraryapi.api.pagination.KeysetCursor;
 import com.persisti.libraryapi.model.entity.Book;
 import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
 import com.persisti.libraryapi.service.BookService;
 import com.persisti.libraryapi.service.LoanService;
 import lombok.RequiredArgsConstructor;
-import org.modelmapper.ModelMapper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
@@ -26,9 +40,12 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class LoanController {
 
+    private static final int MAX_BATCH_SIZE = 10_000;
+
     private final LoanService service;
     private final BookService bookService;
-    private final ModelMapper modelMapper;
+    private final LoanMapper loanMapper;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -37,7 +54,12 @@ public class LoanController {
                 .orElseThrow( () ->
                         new ResponseStatusException( HttpStatus.BAD_REQUEST ,"Book not found for passed isbn"));
 
-        Loan entity = Loan.builder().book(book).customer(dto.getCustomer()).loanDate(LocalDate.now()).build();
+        Loan entity = Loan.builder()
+                .book(book)
+                .customer(dto.getCustomer())
+                .customerEmail(dto.getEmail())
+                .loanDate(LocalDate.now())
+                .build();
 
         entity = service.save(entity);
 
@@ -48,24 +70,81 @@ public class LoanController {
     @ResponseStatus(HttpStatus.OK)
     public void returnedBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto){
         Loan loan = service.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND ));
-        loan.setReturned(dto.getReturned());
-        service.update(loan);
+        // the cached instance is shared with concurrent readers, so the change goes on a copy
+        service.update(loan.toBuilder().returned(dto.getReturned()).build());
+    }
+
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public LoanBatchResultDTO createAll(@RequestBody List<LoanDTO> dtos){
+        checkBatchSize(dtos.size());
+        LocalDate today = LocalDate.now();
+        List<Loan> loans = dtos.stream()
+                .map(dto -> Loan.builder()
+                        .book(bookService.getBookByIsbn(dto.getIsbn()).orElse(null))
+                        .customer(dto.getCustomer())
+                        .customerEmail(dto.getEmail())
+                        .loanDate(today)
+                        .build())
+                .collect(Collectors.toList());
+        return service.saveAll(loans);
+    }
+
+    @PatchMapping("/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public LoanBatchResultDTO returnAll(@RequestBody List<Long> ids){
+        checkBatchSize(ids.size());
+        return service.returnAll(ids);
+    }
+
+    private static void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Batch size must be at most " + MAX_BATCH_SIZE);
+        }
     }
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
     public Page<LoanDTO> find(LoanFilterDTO dto, Pageable pageRequest){
-        Page<Loan> result = service.find(dto, pageRequest);
+        Page<LoanSummary> result = service.find(dto, pageRequest);
         List<LoanDTO> loans = result
                 .getContent()
                 .stream()
-                .map(entity -> {
-                    Book book = entity.getBook();
-                    BookDTO bookDTO = modelMapper.map(book, BookDTO.class);
-                    LoanDTO loanDTO = modelMapper.map(entity, LoanDTO.class);
-                    loanDTO.setBook(bookDTO);
-                    return loanDTO;
-                }).collect(Collectors.toList());
+                .map(loanMapper::toDto)
+                .collect(Collectors.toList());
         return new PageImpl<LoanDTO>(loans, pageRequest, result.getTotalElements());
     }
+
+    @GetMapping(params = "cursor")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPageDTO<LoanDTO> findByCursor(LoanFilterDTO dto, @RequestParam String cursor,
+                                               @RequestParam(defaultValue = "20") int size){
+        Slice<LoanSummary> result = service.findAfter(dto, KeysetCursor.decode(cursor), KeysetCursor.size(size));
+        return KeysetCursor.page(result, LoanSummary::getId, loanMapper::toDto);
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam(defaultValue = "true") boolean includeHistory, WebRequest request){
+        ExportFormat format = ExportFormat.fromAccept(accept);
+        ExportTimeout.apply(request);
+        StreamingResponseBody body = out -> {
+            if (format == ExportFormat.CSV) {
+                try (CsvWriter writer = new CsvWriter(out, "id", "customer", "email", "book_id", "isbn", "title", "author")) {
+                    service.exportLoans(includeHistory, loan -> writer.write(loan.getId(), loan.getCustomer(),
+                            loan.getCustomerEmail(), loan.getBookId(), loan.getIsbn(), loan.getTitle(), loan.getAuthor()));
+                }
+            } else {
+                try (NdjsonWriter writer = new NdjsonWriter(objectMapper, out)) {
+                    service.exportLoans(includeHistory, loan -> writer.write(loanMapper.toDto(loan)));
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.builder("attachment").filename(format.fileName("loans")).build().toString())
+                .body(body);
+    }
 }
@@ -0,0 +1,73 @@
+package com.persisti.libraryapi.api.resource;
+
+import com.persisti.libraryapi.api.dto.LoanStatsDTO;
+import com.persisti.libraryapi.api.dto.LoanStatsOverviewDTO;
+import com.persisti.libraryapi.model.entity.BookLoanStats;
+import com.persisti.libraryapi.model.entity.CustomerLoanStats;
+import com.persisti.libraryapi.model.projection.LoanStatsOverview;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.LoanStatisticsService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Api("Loan statistics API")
+public class StatsController {
+
+    private static final int MAX_DAYS = 366;
+
+    private final LoanStatisticsService service;
+    private final BookService bookService;
+
+    @GetMapping
+    @ApiOperation("OBTAINS THE LOAN TOTALS OF THE LIBRARY")
+    public LoanStatsOverviewDTO overview(){
+        LoanStatsOverview overview = service.getOverview();
+        return LoanStatsOverviewDTO.builder()
+                .totalLoans(overview.getTotalLoans())
+                .activeLoans(overview.getActiveLoans())
+                .lateLoans(overview.getLateLoans())
+                .computedAt(overview.getComputedAt())
+                .build();
+    }
+
+    @GetMapping("/books/{id}")
+    @ApiOperation("OBTAINS THE LOAN COUNTS OF A BOOK")
+    public LoanStatsDTO book(@PathVariable Long id){
+        bookService.getById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        BookLoanStats stats = service.getBookStats(id);
+        return new LoanStatsDTO(id.toString(), stats.getTotalLoans(), stats.getActiveLoans());
+    }
+
+    @GetMapping("/customers/{customer}")
+    @ApiOperation("OBTAINS THE LOAN COUNTS OF A CUSTOMER")
+    public LoanStatsDTO customer(@PathVariable String customer){
+        CustomerLoanStats stats = service.getCustomerStats(customer);
+        return new LoanStatsDTO(customer, stats.getTotalLoans(), stats.getActiveLoans());
+    }
+
+    @GetMapping("/daily")
+    @ApiOperation("OBTAINS THE LOANS TAKEN PER DAY")
+    public List<LoanStatsDTO> daily(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Date range must be ordered and span at most " + MAX_DAYS + " days");
+        }
+        return service.getDailyStats(from, to).stream()
+                .map(day -> new LoanStatsDTO(day.getDay().toString(), day.getTotalLoans(), day.getActiveLoans()))
+                .collect(Collectors.toList());
+    }
+}
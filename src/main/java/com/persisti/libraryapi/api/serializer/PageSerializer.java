@@ -0,0 +1,38 @@
+package com.persisti.libraryapi.api.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import org.springframework.boot.jackson.JsonComponent;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+
+/**
+ * Writes listing pages as a lean envelope: the content and the paging numbers clients use. The
+ * {@code pageable} and {@code sort} objects Jackson would otherwise derive from {@code PageImpl} by
+ * reflection repeat the request and are left out.
+ */
+@JsonComponent
+public class PageSerializer extends JsonSerializer<Page<?>> {
+
+    @Override
+    public void serialize(Page<?> page, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        gen.writeStartObject();
+        serializers.defaultSerializeField("content", page.getContent(), gen);
+        gen.writeNumberField("number", page.getNumber());
+        gen.writeNumberField("size", page.getSize());
+        gen.writeNumberField("numberOfElements", page.getNumberOfElements());
+        gen.writeNumberField("totalElements", page.getTotalElements());
+        gen.writeNumberField("totalPages", page.getTotalPages());
+        gen.writeBooleanField("first", page.isFirst());
+        gen.writeBooleanField("last", page.isLast());
+        gen.writeEndObject();
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Class<Page<?>> handledType() {
+        return (Class) Page.class;
+    }
+}
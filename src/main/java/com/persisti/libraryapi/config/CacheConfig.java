@@ -0,0 +1,17 @@
+package com.persisti.libraryapi.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are declared through {@code spring.cache.*}; their hit, miss and eviction counters are published
+ * by actuator under the {@code cache.*} metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String BOOKS = "books";
+    public static final String LOANS = "loans";
+    public static final String BOOK_IDS_BY_ISBN = "bookIdsByIsbn";
+}
@@ -0,0 +1,52 @@
+package com.persisti.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Training run for the class data sharing archive built by the {@code cds} Maven profile: once the
+ * application is ready it answers a couple of requests against itself, so the classes loaded by the
+ * first request end up in the class list too, and then exits.
+ */
+@Component
+@ConditionalOnProperty(name = "application.startup.training-run", havingValue = "true")
+@Slf4j
+public class CdsTrainingRun {
+
+    private static final String[] PATHS = {"/api/books?page=0&size=1", "/api/loans?customer=&isbn=&size=1", "/actuator/health"};
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        String port = context.getEnvironment().getProperty("local.server.port");
+        if (port != null) {
+            for (String path : PATHS) {
+                get("http://localhost:" + port + path);
+            }
+        }
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private static void get(String url) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            try (InputStream body = connection.getInputStream()) {
+                body.readAllBytes();
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            log.warn("falha na requisicao de treino {}: {}", url, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.persisti.libraryapi.config;
+
+import com.persisti.libraryapi.config.datasource.ReadOnlyRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read/write splitting, enabled by configuring {@code application.datasource.replica.jdbc-url}. The
+ * primary pool is built from {@code spring.datasource.*} as Spring Boot would, the replica pool from
+ * {@code application.datasource.replica.*}, and the application data source routes each transaction to
+ * one of them by its read-only flag. The pools are not beans of their own: Spring Boot initializes every
+ * {@code DataSource} bean against the {@code dataSource} bean, which would then depend on itself.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "application.datasource.replica", name = "jdbc-url")
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment,
+                                 ObjectProvider<MeterRegistry> registry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        HikariDataSource replica = new HikariDataSource();
+        binder.bind("application.datasource.replica", Bindable.ofInstance(replica));
+        registry.ifAvailable(meters -> {
+            primary.setMetricRegistry(meters);
+            replica.setMetricRegistry(meters);
+        });
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadOnlyRoutingDataSource.Route.PRIMARY, primary);
+        targets.put(ReadOnlyRoutingDataSource.Route.REPLICA, replica);
+        ReadOnlyRoutingDataSource routing = new ReadOnlyRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return new RoutingDataSource(routing, primary, replica);
+    }
+
+    /**
+     * Closes both pools when the context shuts down, which Spring would have done for pool beans.
+     */
+    static final class RoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final HikariDataSource primary;
+        private final HikariDataSource replica;
+
+        RoutingDataSource(DataSource routing, HikariDataSource primary, HikariDataSource replica) {
+            super(routing);
+            this.primary = primary;
+            this.replica = replica;
+        }
+
+        @Override
+        public void close() {
+            replica.close();
+            primary.close();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.persisti.libraryapi.config;
+
+import com.persisti.libraryapi.api.exporter.ExportTimeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Gives the book and loan exports their own async timeout ({@code application.export.timeout}), leaving
+ * {@code spring.mvc.async.request-timeout} to every other async request.
+ */
+@Configuration
+public class ExportConfig implements WebMvcConfigurer {
+
+    private final Duration timeout;
+
+    public ExportConfig(@Value("${application.export.timeout:1h}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new ExportTimeout(timeout.toMillis()));
+    }
+}
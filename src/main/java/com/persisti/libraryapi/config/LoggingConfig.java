@@ -0,0 +1,66 @@
+package com.persisti.libraryapi.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import com.persisti.libraryapi.config.logging.DroppingAsyncAppender;
+import com.persisti.libraryapi.config.logging.RequestLoggingFilter;
+import com.persisti.libraryapi.config.logging.RequestLoggingProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.Iterator;
+
+/**
+ * Request logging and the metrics of the asynchronous log pipeline configured in {@code logback-spring.xml}:
+ * {@code library.logging.dropped} counts events discarded because the queue was full and
+ * {@code library.logging.queued} shows how many are waiting to be written.
+ */
+@Configuration
+@EnableConfigurationProperties(RequestLoggingProperties.class)
+public class LoggingConfig {
+
+    public static final String DROPPED = "library.logging.dropped";
+    public static final String QUEUED = "library.logging.queued";
+
+    @Bean
+    @ConditionalOnProperty(name = "application.logging.requests.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RequestLoggingFilter> requestLoggingFilter(RequestLoggingProperties properties) {
+        FilterRegistrationBean<RequestLoggingFilter> registration =
+                new FilterRegistrationBean<>(new RequestLoggingFilter(properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder asyncLoggingMetrics() {
+        return registry -> {
+            if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+                return;
+            }
+            LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+            Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+            while (appenders.hasNext()) {
+                Appender<ILoggingEvent> appender = appenders.next();
+                if (appender instanceof DroppingAsyncAppender) {
+                    DroppingAsyncAppender async = (DroppingAsyncAppender) appender;
+                    FunctionCounter.builder(DROPPED, async, DroppingAsyncAppender::getDroppedCount)
+                            .tag("appender", async.getName())
+                            .register(registry);
+                    Gauge.builder(QUEUED, async, DroppingAsyncAppender::getQueuedCount)
+                            .tag("appender", async.getName())
+                            .register(registry);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.persisti.libraryapi.config;
+
+import com.persisti.libraryapi.api.mapper.BookMapper;
+import com.persisti.libraryapi.api.mapper.LoanMapper;
+import com.persisti.libraryapi.api.mapper.ModelMapperBookMapper;
+import com.persisti.libraryapi.api.mapper.ModelMapperLoanMapper;
+import com.persisti.libraryapi.api.mapper.TimedBookMapper;
+import com.persisti.libraryapi.api.mapper.TimedLoanMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * DTO mappers. Uses the MapStruct implementations generated at compile time by default;
+ * {@code application.mapping.engine=modelmapper} switches back to reflective ModelMapper mapping. Either
+ * engine is timed under {@code library.mapping}, tagged by engine and type.
+ */
+@Configuration
+public class MappingConfig {
+
+    @Configuration
+    @ConditionalOnProperty(name = "application.mapping.engine", havingValue = "mapstruct", matchIfMissing = true)
+    static class MapStructMappingConfig {
+
+        @Bean
+        public BookMapper bookMapper(MeterRegistry registry) {
+            return new TimedBookMapper(Mappers.getMapper(BookMapper.class), registry);
+        }
+
+        @Bean
+        public LoanMapper loanMapper(MeterRegistry registry) {
+            return new TimedLoanMapper(Mappers.getMapper(LoanMapper.class), registry);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "application.mapping.engine", havingValue = "modelmapper")
+    static class ModelMapperMappingConfig {
+
+        @Bean
+        public BookMapper bookMapper(ModelMapper modelMapper, MeterRegistry registry) {
+            return new ModelMapperBookMapper(modelMapper, registry);
+        }
+
+        @Bean
+        public LoanMapper loanMapper(ModelMapper modelMapper, MeterRegistry registry) {
+            return new ModelMapperLoanMapper(modelMapper, registry);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.persisti.libraryapi.config;
+
+import com.persisti.libraryapi.config.metrics.SqlStatementMetricsInterceptor;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Request latency is recorded by actuator as {@code http.server.requests}; this adds the service method
+ * timers ({@code @Timed}) and the per-request SQL statement counts.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    public static final String SERVICE_TIMER = "library.service";
+    public static final String MAPPING_TIMER = "library.mapping";
+    public static final String LOAN_ADMISSIONS = "library.loan.admissions";
+
+    private final MeterRegistry registry;
+
+    public MetricsConfig(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Bean
+    public TimedAspect timedAspect() {
+        return new TimedAspect(registry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new SqlStatementMetricsInterceptor(registry)).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,67 @@
+package com.persisti.libraryapi.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.config.ratelimit.AdaptiveConcurrencyLimiter;
+import com.persisti.libraryapi.config.ratelimit.ClientBuckets;
+import com.persisti.libraryapi.config.ratelimit.RateLimitFilter;
+import com.persisti.libraryapi.config.ratelimit.RateLimitProperties;
+import com.persisti.libraryapi.config.ratelimit.RequestTier;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Per-client rate limiting and load shedding for {@code /api/**}, enabled unless
+ * {@code application.ratelimit.enabled=false}. Registered ahead of every other filter so rejected
+ * requests cost as little as possible.
+ */
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(name = "application.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    public static final String CONCURRENCY_LIMIT = "library.ratelimit.concurrency.limit";
+    public static final String IN_FLIGHT = "library.ratelimit.concurrency.in-flight";
+    public static final String CLIENTS = "library.ratelimit.clients";
+
+    @Bean
+    public ClientBuckets clientBuckets(RateLimitProperties properties, MeterRegistry registry) {
+        ClientBuckets buckets = new ClientBuckets(properties);
+        Gauge.builder(CLIENTS, buckets, ClientBuckets::size).register(registry);
+        return buckets;
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter adaptiveConcurrencyLimiter(RateLimitProperties properties,
+                                                                 MeterRegistry registry) {
+        RateLimitProperties.Concurrency concurrency = properties.getConcurrency();
+        RequestTier[] tiers = RequestTier.values();
+        double[] shares = new double[tiers.length];
+        for (RequestTier tier : tiers) {
+            shares[tier.ordinal()] = properties.tier(tier).getConcurrencyShare();
+        }
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(concurrency.getInitialLimit(),
+                concurrency.getMinLimit(), concurrency.getMaxLimit(), concurrency.getTolerance(), shares);
+        Gauge.builder(CONCURRENCY_LIMIT, limiter, AdaptiveConcurrencyLimiter::getLimit).register(registry);
+        Gauge.builder(IN_FLIGHT, limiter, AdaptiveConcurrencyLimiter::getInFlight).register(registry);
+        return limiter;
+    }
+
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(RateLimitProperties properties,
+                                                                   ClientBuckets buckets,
+                                                                   AdaptiveConcurrencyLimiter limiter,
+                                                                   ObjectMapper objectMapper,
+                                                                   MeterRegistry registry) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(
+                new RateLimitFilter(properties, buckets, limiter, objectMapper, registry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,66 @@
+package com.persisti.libraryapi.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in execution mode ({@code application.execution.virtual-threads.enabled=true}) that runs every
+ * request, and therefore its blocking JDBC calls, on its own virtual thread instead of the bounded Tomcat
+ * worker pool. Virtual threads need a Java 21+ runtime; the executor is looked up reflectively so the
+ * application still builds for Java 11 and simply keeps the platform thread pool on older runtimes.
+ * Database concurrency is then bounded by the connection pool rather than by Tomcat's thread count.
+ */
+@Configuration
+@ConditionalOnProperty(name = "application.execution.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final ExecutorService executor = newVirtualThreadExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executor != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            log.info("requisicoes serao executadas em virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            log.warn("virtual threads indisponiveis nesta JVM ({}), mantendo o pool do Tomcat",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
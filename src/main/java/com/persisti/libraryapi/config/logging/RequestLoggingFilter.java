@@ -0,0 +1,93 @@
+package com.persisti.libraryapi.config.logging;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Tags every request with a request id (taken from {@code X-Request-Id} when the caller sent a sane one)
+ * that stays in the MDC for every log line of the request, and writes one structured line per request
+ * with its method, URI template, status and duration. Failed and slow requests are always logged,
+ * successful ones only at the configured sample rate.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    public static final String REQUEST_ID_HEADER = "X-Request-Id";
+    public static final String REQUEST_ID = "requestId";
+
+    private static final Pattern VALID_REQUEST_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final RequestLoggingProperties properties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = requestId(request);
+        response.setHeader(REQUEST_ID_HEADER, requestId);
+        MDC.put(REQUEST_ID, requestId);
+        long start = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? null : pattern.toString();
+            if (shouldLog(uri, status, durationMs)) {
+                write(request.getMethod(), uri == null ? "UNKNOWN" : uri, status, durationMs);
+            }
+            MDC.remove(REQUEST_ID);
+        }
+    }
+
+    private boolean shouldLog(String uri, int status, long durationMs) {
+        if (!log.isInfoEnabled()) {
+            return false;
+        }
+        if (status >= 400 || durationMs >= properties.getSlowThresholdMs()) {
+            return true;
+        }
+        double rate = properties.sampleRate(uri);
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static void write(String method, String uri, int status, long durationMs) {
+        MDC.put("method", method);
+        MDC.put("uri", uri);
+        MDC.put("status", Integer.toString(status));
+        MDC.put("durationMs", Long.toString(durationMs));
+        try {
+            if (status >= 500) {
+                log.warn("{} {} {} {} ms", method, uri, status, durationMs);
+            } else {
+                log.info("{} {} {} {} ms", method, uri, status, durationMs);
+            }
+        } finally {
+            MDC.remove("method");
+            MDC.remove("uri");
+            MDC.remove("status");
+            MDC.remove("durationMs");
+        }
+    }
+
+    private static String requestId(HttpServletRequest request) {
+        String requestId = request.getHeader(REQUEST_ID_HEADER);
+        if (requestId != null && VALID_REQUEST_ID.matcher(requestId).matches()) {
+            return requestId;
+        }
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+}
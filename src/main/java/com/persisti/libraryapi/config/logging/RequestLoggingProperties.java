@@ -0,0 +1,35 @@
+package com.persisti.libraryapi.config.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code application.logging.requests.*}: which successful requests get a log line. Sample rates are
+ * fractions between 0 and 1, overridable per URI template, e.g.
+ * {@code application.logging.requests.sample-rates.[/api/books/{id}]=0.1}.
+ */
+@Data
+@ConfigurationProperties("application.logging.requests")
+public class RequestLoggingProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Fraction of fast, successful requests that are logged.
+     */
+    private double sampleRate = 0.01;
+
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    /**
+     * Requests taking at least this long are always logged.
+     */
+    private long slowThresholdMs = 1000;
+
+    public double sampleRate(String uri) {
+        return uri == null ? sampleRate : sampleRates.getOrDefault(uri, sampleRate);
+    }
+}
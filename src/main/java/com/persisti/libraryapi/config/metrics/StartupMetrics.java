@@ -0,0 +1,68 @@
+package com.persisti.libraryapi.config.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Publishes the time from JVM start until the application is ready ({@code library.startup.ready}) and
+ * until the first request was answered ({@code library.startup.first-request}). With lazy initialization
+ * the second one also covers the beans created on demand by that first request.
+ */
+@Component
+@Slf4j
+public class StartupMetrics extends OncePerRequestFilter implements ApplicationListener<ApplicationReadyEvent> {
+
+    public static final String READY = "library.startup.ready";
+    public static final String FIRST_REQUEST = "library.startup.first-request";
+
+    private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+
+    // NaN until the milestone is reached, so the gauges report no value instead of zero
+    private volatile double readyMillis = Double.NaN;
+    private volatile double firstRequestMillis = Double.NaN;
+
+    public StartupMetrics(MeterRegistry registry) {
+        TimeGauge.builder(READY, this, TimeUnit.MILLISECONDS, metrics -> metrics.readyMillis).register(registry);
+        TimeGauge.builder(FIRST_REQUEST, this, TimeUnit.MILLISECONDS, metrics -> metrics.firstRequestMillis)
+                .register(registry);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long uptime = uptime();
+        readyMillis = uptime;
+        log.info("aplicacao pronta em {} ms", uptime);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!firstRequestServed.get() && firstRequestServed.compareAndSet(false, true)) {
+                long uptime = uptime();
+                firstRequestMillis = uptime;
+                log.info("primeira requisicao respondida {} ms apos o inicio da JVM", uptime);
+            }
+        }
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,88 @@
+package com.persisti.libraryapi.config.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the number of requests in flight by a limit that follows observed latency (a gradient limiter):
+ * while latency stays near the best latency seen recently the limit grows, and as queueing inflates
+ * latency the limit shrinks in proportion, shedding load before the Tomcat and JDBC pools saturate.
+ * Every counter is an atomic; admitting and releasing a request never takes a lock.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_RTT_RESET_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double[] tierShares;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong minRttNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicInteger samples = new AtomicInteger();
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance,
+                                      double[] tierShares) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.tierShares = tierShares;
+        this.limit = new AtomicInteger(Math.max(minLimit, Math.min(maxLimit, initialLimit)));
+    }
+
+    /**
+     * Reserves a slot for a request of the given tier if the tier's share of the current limit allows it.
+     */
+    public boolean tryAcquire(RequestTier tier) {
+        int allowed = Math.max(1, (int) (limit.get() * tierShares[tier.ordinal()]));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees the slot taken by {@link #tryAcquire}; {@code rttNanos} is the request latency, or a negative
+     * value when the request should not count as a latency sample.
+     */
+    public void release(long rttNanos) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, inFlightBefore);
+        }
+    }
+
+    private void update(long rttNanos, int inFlightBefore) {
+        if (samples.incrementAndGet() % MIN_RTT_RESET_SAMPLES == 0) {
+            // let the baseline rise again after the workload became slower for good
+            minRttNanos.set(rttNanos);
+        }
+        long minRtt = minRttNanos.accumulateAndGet(rttNanos, Math::min);
+        int current = limit.get();
+        if (inFlightBefore * 2 < current) {
+            // the limit is not what holds requests back, latency tells nothing about it
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * minRtt / rttNanos));
+        int next = (int) Math.round(current * gradient + Math.sqrt(current));
+        next = Math.max(minLimit, Math.min(maxLimit, next));
+        if (next != current) {
+            limit.compareAndSet(current, next);
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,44 @@
+package com.persisti.libraryapi.config.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * One token bucket per client and tier. Clients are kept in a bounded Caffeine cache that forgets idle
+ * ones, so rotating client keys cannot grow memory without bound.
+ */
+public class ClientBuckets {
+
+    private final Cache<String, TokenBucket[]> buckets;
+    private final Function<String, TokenBucket[]> factory;
+
+    public ClientBuckets(RateLimitProperties properties) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(Duration.ofMinutes(properties.getClientIdleMinutes()))
+                .build();
+        this.factory = client -> {
+            RequestTier[] tiers = RequestTier.values();
+            TokenBucket[] perTier = new TokenBucket[tiers.length];
+            for (RequestTier tier : tiers) {
+                RateLimitProperties.Tier limits = properties.tier(tier);
+                perTier[tier.ordinal()] = new TokenBucket(limits.getRatePerSecond(), limits.getBurst());
+            }
+            return perTier;
+        };
+    }
+
+    /**
+     * @return 0 when the client may proceed, otherwise the nanoseconds until its next token
+     */
+    public long tryAcquire(String client, RequestTier tier) {
+        return buckets.get(client, factory)[tier.ordinal()].tryAcquire();
+    }
+
+    public long size() {
+        return buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,112 @@
+package com.persisti.libraryapi.config.ratelimit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.api.exception.ApiErrors;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control in front of the API, before any controller, service or connection is touched. A
+ * client over its token bucket for the request tier gets a 429 with Retry-After; a request that finds
+ * the tier's share of the adaptive concurrency limit used up gets a 503. Outcomes are counted in
+ * {@code library.ratelimit.requests} by tier.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String REQUESTS = "library.ratelimit.requests";
+
+    private final String apiKeyHeader;
+    private final ClientBuckets buckets;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final byte[] throttledBody;
+    private final byte[] shedBody;
+    private final Counter[] admitted;
+    private final Counter[] throttled;
+    private final Counter[] shed;
+
+    public RateLimitFilter(RateLimitProperties properties, ClientBuckets buckets, AdaptiveConcurrencyLimiter limiter,
+                           ObjectMapper objectMapper, MeterRegistry registry) {
+        this.apiKeyHeader = properties.getApiKeyHeader();
+        this.buckets = buckets;
+        this.limiter = limiter;
+        this.throttledBody = body(objectMapper, "Too many requests");
+        this.shedBody = body(objectMapper, "Service overloaded, try again later");
+        this.admitted = counters(registry, "admitted");
+        this.throttled = counters(registry, "throttled");
+        this.shed = counters(registry, "shed");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestTier tier = RequestTier.of(request);
+        long waitNanos = buckets.tryAcquire(client(request), tier);
+        if (waitNanos > 0) {
+            throttled[tier.ordinal()].increment();
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1, throttledBody);
+            return;
+        }
+        if (!limiter.tryAcquire(tier)) {
+            shed[tier.ordinal()].increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, shedBody);
+            return;
+        }
+        admitted[tier.ordinal()].increment();
+        long start = System.nanoTime();
+        boolean sample = false;
+        try {
+            chain.doFilter(request, response);
+            // streamed exports keep running after this returns, their time says nothing about load
+            sample = !request.isAsyncStarted() && response.getStatus() < 500;
+        } finally {
+            limiter.release(sample ? System.nanoTime() - start : -1);
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(apiKeyHeader);
+        return apiKey != null && !apiKey.isEmpty() ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, byte[] body)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static byte[] body(ObjectMapper objectMapper, String message) {
+        try {
+            return objectMapper.writeValueAsBytes(new ApiErrors(message));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Counter[] counters(MeterRegistry registry, String outcome) {
+        RequestTier[] tiers = RequestTier.values();
+        Counter[] counters = new Counter[tiers.length];
+        for (RequestTier tier : tiers) {
+            counters[tier.ordinal()] = Counter.builder(REQUESTS)
+                    .tag("tier", tier.tag())
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+        return counters;
+    }
+}
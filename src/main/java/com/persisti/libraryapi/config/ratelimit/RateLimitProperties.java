@@ -0,0 +1,63 @@
+package com.persisti.libraryapi.config.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@code application.ratelimit.*}: per-client token buckets for each {@link RequestTier} and the bounds of
+ * the adaptive concurrency limit shared by all clients.
+ */
+@Data
+@ConfigurationProperties("application.ratelimit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Header identifying the client; requests without it are keyed by remote address.
+     */
+    private String apiKeyHeader = "X-Api-Key";
+
+    private long maxClients = 100_000;
+
+    private long clientIdleMinutes = 10;
+
+    private Map<RequestTier, Tier> tiers = new EnumMap<>(RequestTier.class);
+
+    private Concurrency concurrency = new Concurrency();
+
+    public Tier tier(RequestTier tier) {
+        return tiers.computeIfAbsent(tier, key -> new Tier());
+    }
+
+    @Data
+    public static class Tier {
+
+        private double ratePerSecond = 50;
+
+        private int burst = 100;
+
+        /**
+         * Fraction of the concurrency limit requests of this tier may occupy.
+         */
+        private double concurrencyShare = 1.0;
+    }
+
+    @Data
+    public static class Concurrency {
+
+        private int initialLimit = 100;
+
+        private int minLimit = 10;
+
+        private int maxLimit = 400;
+
+        /**
+         * How much latency may grow over the best recent latency before the limit starts to shrink.
+         */
+        private double tolerance = 2.0;
+    }
+}
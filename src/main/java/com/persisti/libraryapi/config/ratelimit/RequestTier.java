@@ -0,0 +1,27 @@
+package com.persisti.libraryapi.config.ratelimit;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Priority of a request for admission control, highest first. Under load lower tiers are shed first:
+ * each tier may only use its share of the concurrency limit, so loan writes keep headroom that catalog
+ * browsing cannot take.
+ */
+public enum RequestTier {
+
+    LOAN_WRITE,
+    WRITE,
+    READ;
+
+    public static RequestTier of(HttpServletRequest request) {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            return READ;
+        }
+        return request.getRequestURI().startsWith("/api/loans") ? LOAN_WRITE : WRITE;
+    }
+
+    public String tag() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,22 @@
+package com.persisti.libraryapi.exception;
+
+import org.hibernate.exception.ConstraintViolationException;
+
+public final class ConstraintViolations {
+
+    private ConstraintViolations() {
+    }
+
+    /**
+     * Whether the exception, or any of its causes, reports a violation of the named database constraint.
+     */
+    public static boolean isViolationOf(Throwable exception, String constraintName) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                String constraint = ((ConstraintViolationException) cause).getConstraintName();
+                return constraint != null && constraint.toLowerCase().contains(constraintName);
+            }
+        }
+        return false;
+    }
+}
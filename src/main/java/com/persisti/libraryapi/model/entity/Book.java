@@ -4,20 +4,27 @@ import javax.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor @AllArgsConstructor
 @Entity
-@Table
+@Table(uniqueConstraints = @UniqueConstraint(name = Book.ISBN_CONSTRAINT, columnNames = "isbn"),
+        indexes = @Index(name = "ix_book_atualizado_em", columnList = "atualizado_em"))
 public class Book {
 
+    public static final String ISBN_CONSTRAINT = "uk_book_isbn";
+
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -29,6 +36,32 @@ public class Book {
     @Column
     private String isbn;
 
+    /**
+     * Whether the book has no open loan. Only changed through the atomic updates in BookRepository, never
+     * by merging a Book, so a stale instance cannot overwrite it.
+     */
+    @Column(name = "disponivel", updatable = false)
+    private Boolean available;
+
+    /**
+     * Optimistic lock version, also the source of the book's ETag. Bulk updates in BookRepository
+     * increment it themselves.
+     */
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long version;
+
+    @Column(name = "atualizado_em")
+    private Instant lastModified;
+
     @OneToMany(mappedBy = "book")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private List<Loan> loans;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
 }
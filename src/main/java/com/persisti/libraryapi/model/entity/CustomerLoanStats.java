@@ -0,0 +1,24 @@
+package com.persisti.libraryapi.model.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+/**
+ * Loans of one customer, archived ones included, maintained by the loan statistics.
+ */
+@Data
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "loan_stats_customer")
+public class CustomerLoanStats {
+
+    @Id
+    @Column(name = "cliente", length = 100)
+    private String customer;
+
+    @Column(name = "total_emprestimos", nullable = false)
+    private long totalLoans;
+
+    @Column(name = "emprestimos_ativos", nullable = false)
+    private long activeLoans;
+}
@@ -0,0 +1,27 @@
+package com.persisti.libraryapi.model.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Loans taken on one day and how many of them are still open; the open loans of days past the loan
+ * period are the late ones.
+ */
+@Data
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "loan_stats_daily")
+public class DailyLoanStats {
+
+    @Id
+    @Column(name = "data_emprestimo")
+    private LocalDate day;
+
+    @Column(name = "total_emprestimos", nullable = false)
+    private long totalLoans;
+
+    @Column(name = "emprestimos_ativos", nullable = false)
+    private long activeLoans;
+}
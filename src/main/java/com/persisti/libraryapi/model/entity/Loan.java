@@ -6,13 +6,23 @@ import lombok.*;
 import java.time.LocalDate;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor @AllArgsConstructor
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Loan.ACTIVE_BOOK_CONSTRAINT, columnNames = "id_book_ativo"),
+        indexes = {
+                @Index(name = "ix_loan_cliente", columnList = "cliente"),
+                @Index(name = "ix_loan_book", columnList = "id_book"),
+                @Index(name = "ix_loan_data_emprestimo", columnList = "data_emprestimo"),
+                @Index(name = "ix_loan_devolvido_data", columnList = "devolvido, data_emprestimo")
+        })
 public class Loan {
 
+    public static final String ACTIVE_BOOK_CONSTRAINT = "uk_loan_active_book";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "cliente", length = 100)
@@ -22,7 +32,9 @@ public class Loan {
     private String customerEmail;
 
     @JoinColumn(name = "id_book")
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
 
     @Column(name = "data_emprestimo")
@@ -31,6 +43,16 @@ public class Loan {
     @Column(name = "devolvido")
     private boolean returned;
 
+    /**
+     * Id of the book while the loan is open and null once returned; its unique constraint lets the
+     * database reject a second open loan for the same book.
+     */
+    @Column(name = "id_book_ativo")
+    private Long activeBookId;
+
+    @Column(name = "aviso_atraso_enviado_em")
+    private LocalDate lateNoticeSentAt;
+
     public boolean getReturned() {
         return returned;
     }
@@ -0,0 +1,66 @@
+package com.persisti.libraryapi.model.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Returned loan moved out of the Loan table by the archive job. It keeps the id of the original loan, so
+ * ids stay unique across both tables, and is keyed by {@link #period} so the table can be partitioned by
+ * month and old partitions dropped without touching recent history.
+ */
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "loan_history", indexes = {
+        @Index(name = "ix_loan_history_periodo", columnList = "periodo"),
+        @Index(name = "ix_loan_history_book", columnList = "id_book"),
+        @Index(name = "ix_loan_history_cliente", columnList = "cliente")
+})
+public class LoanHistory {
+
+    @Id
+    private Long id;
+
+    @Column(name = "cliente", length = 100)
+    private String customer;
+
+    @Column(name = "customer_email")
+    private String customerEmail;
+
+    @JoinColumn(name = "id_book")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Book book;
+
+    @Column(name = "data_emprestimo")
+    private LocalDate loanDate;
+
+    /**
+     * Partition key: year and month of the loan date as {@code yyyyMM}.
+     */
+    @Column(name = "periodo", nullable = false)
+    private int period;
+
+    @Column(name = "arquivado_em")
+    private LocalDate archivedAt;
+
+    public static LoanHistory of(Loan loan, LocalDate archivedAt) {
+        return LoanHistory.builder()
+                .id(loan.getId())
+                .customer(loan.getCustomer())
+                .customerEmail(loan.getCustomerEmail())
+                .book(loan.getBook())
+                .loanDate(loan.getLoanDate())
+                .period(periodOf(loan.getLoanDate()))
+                .archivedAt(archivedAt)
+                .build();
+    }
+
+    public static int periodOf(LocalDate date) {
+        return date == null ? 0 : date.getYear() * 100 + date.getMonthValue();
+    }
+}
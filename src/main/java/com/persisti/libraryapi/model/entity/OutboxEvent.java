@@ -0,0 +1,54 @@
+package com.persisti.libraryapi.model.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Change to a book or loan, written in the transaction of the change itself. Ids come from a pooled
+ * sequence and are not in commit order, so once committed each event is given a {@link #position} by the
+ * sequencer: positions are gapless and increase in the order events became visible, which lets consumers
+ * resume from the last position they saw without missing a late commit.
+ */
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@Entity
+@Table(name = "outbox_event",
+        uniqueConstraints = @UniqueConstraint(name = "uk_outbox_event_posicao", columnNames = "posicao"),
+        indexes = @Index(name = "ix_outbox_event_criado_em", columnList = "criado_em"))
+public class OutboxEvent {
+
+    public enum Aggregate { BOOK, LOAN }
+
+    public enum Type { CREATED, UPDATED, DELETED, AVAILABILITY_CHANGED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "posicao")
+    private Long position;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "agregado", length = 20, nullable = false)
+    private Aggregate aggregate;
+
+    @Column(name = "id_agregado", nullable = false)
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", length = 30, nullable = false)
+    private Type type;
+
+    /**
+     * The changed fields as a JSON object.
+     */
+    @Column(name = "payload", length = 2000)
+    private String payload;
+
+    @Column(name = "criado_em", nullable = false)
+    private Instant createdAt;
+}
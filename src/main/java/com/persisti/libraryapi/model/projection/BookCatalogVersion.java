@@ -0,0 +1,19 @@
+package com.persisti.libraryapi.model.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Version of the book catalog as a listing sees it. The revision counts the writes committed to the change
+ * feed, so unlike timestamps stamped before commit it moves in commit order; the index generation moves
+ * whenever the in-memory search index applies a change, which happens after the commit.
+ */
+@Data
+@NoArgsConstructor @AllArgsConstructor
+public class BookCatalogVersion {
+
+    private long revision;
+
+    private String indexGeneration;
+}
@@ -0,0 +1,28 @@
+package com.persisti.libraryapi.model.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Library-wide loan totals, summed from the daily loan statistics.
+ */
+@Data
+@NoArgsConstructor @AllArgsConstructor
+public class LoanStatsOverview {
+
+    private Long totalLoans;
+
+    private Long activeLoans;
+
+    private Long lateLoans;
+
+    private Instant computedAt;
+
+    public LoanStatsOverview(Long totalLoans, Long activeLoans, Long lateLoans) {
+        this(totalLoans == null ? 0L : totalLoans, activeLoans == null ? 0L : activeLoans,
+                lateLoans == null ? 0L : lateLoans, Instant.now());
+    }
+}
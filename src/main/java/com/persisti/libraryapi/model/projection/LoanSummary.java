@@ -0,0 +1,28 @@
+package com.persisti.libraryapi.model.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flat read model of a loan and its book, filled by a single join query so listings never touch the
+ * {@code Loan.book} association.
+ */
+@Data
+@NoArgsConstructor @AllArgsConstructor
+public class LoanSummary {
+
+    private Long id;
+
+    private String customer;
+
+    private String customerEmail;
+
+    private Long bookId;
+
+    private String title;
+
+    private String author;
+
+    private String isbn;
+}
@@ -0,0 +1,25 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.BookLoanStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface BookLoanStatsRepository extends JpaRepository<BookLoanStats, Long> {
+
+    @Modifying
+    @Query("UPDATE BookLoanStats s SET s.totalLoans = s.totalLoans + :total, s.activeLoans = s.activeLoans + :active " +
+            "WHERE s.bookId = :bookId")
+    int addTo(@Param("bookId") Long bookId, @Param("total") long total, @Param("active") long active);
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.BookLoanStats(l.book.id, COUNT(l), " +
+            "SUM(CASE WHEN l.returned = false THEN 1 ELSE 0 END)) FROM Loan l GROUP BY l.book.id")
+    List<BookLoanStats> countLoans();
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.BookLoanStats(h.book.id, COUNT(h), 0L) " +
+            "FROM LoanHistory h GROUP BY h.book.id")
+    List<BookLoanStats> countArchivedLoans();
+}
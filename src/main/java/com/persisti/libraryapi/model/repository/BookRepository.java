@@ -1,13 +1,109 @@
 package com.persisti.libraryapi.model.repository;
 
 import com.persisti.libraryapi.model.entity.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface BookRepository extends JpaRepository<Book, Long> {
+
+    String EXPORT_FETCH_SIZE = "1000";
+
     boolean existsByIsbn(String isbn);
 
     Optional<Book> findByIsbn(String isbn);
 
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    Slice<Book> findByIdGreaterThan(Long id, Pageable pageable);
+
+    @Query("SELECT b FROM Book b WHERE b.id > :lastId " +
+            "AND (:title IS NULL OR LOWER(b.title) LIKE CONCAT('%', LOWER(:title), '%')) " +
+            "AND (:author IS NULL OR LOWER(b.author) LIKE CONCAT('%', LOWER(:author), '%')) " +
+            "AND (:isbn IS NULL OR LOWER(b.isbn) LIKE CONCAT('%', LOWER(:isbn), '%')) " +
+            "AND (:available IS NULL OR b.available = :available)")
+    Slice<Book> findNextPage(
+            @Param("lastId") Long lastId,
+            @Param("title") String title,
+            @Param("author") String author,
+            @Param("isbn") String isbn,
+            @Param("available") Boolean available,
+            Pageable pageable
+    );
+
+    /**
+     * Every book in id order, read through a forward-only cursor in blocks of {@code EXPORT_FETCH_SIZE}
+     * rows; the caller must consume it inside a transaction and close it.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT b FROM Book b ORDER BY b.id")
+    Stream<Book> streamAll();
+
+    @Modifying
+    @Query("UPDATE Book b SET b.available = false, b.version = b.version + 1, b.lastModified = :now " +
+            "WHERE b.id = :id AND (b.available IS NULL OR b.available = true)")
+    int markLoaned(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.available = true, b.version = b.version + 1, b.lastModified = :now WHERE b.id = :id")
+    int markAvailable(@Param("id") Long id, @Param("now") Instant now);
+
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids AND (b.available IS NULL OR b.available = true)")
+    Set<Long> findAvailableIds(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.available = false, b.version = b.version + 1, b.lastModified = :now " +
+            "WHERE b.id IN :ids AND (b.available IS NULL OR b.available = true)")
+    int markAllLoaned(@Param("ids") Collection<Long> ids, @Param("now") Instant now);
+
+    @Query("SELECT b.id FROM Book b WHERE (b.available IS NULL OR b.available = true) " +
+            "AND EXISTS (SELECT l.id FROM Loan l WHERE l.book = b AND l.returned = false)")
+    List<Long> findAvailableWithOpenLoan();
+
+    @Query("SELECT b.id FROM Book b WHERE (b.available IS NULL OR b.available = false) " +
+            "AND NOT EXISTS (SELECT l.id FROM Loan l WHERE l.book = b AND l.returned = false)")
+    List<Long> findLoanedWithoutOpenLoan();
+
+    /**
+     * Flips a book found by {@link #findAvailableWithOpenLoan} to loaned, unless a return committed since
+     * then already made it right; returns 0 in that case.
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.available = false, b.version = b.version + 1, b.lastModified = :now " +
+            "WHERE b.id = :id AND (b.available IS NULL OR b.available = true) " +
+            "AND EXISTS (SELECT l.id FROM Loan l WHERE l.book.id = :id AND l.returned = false)")
+    int reconcileLoaned(@Param("id") Long id, @Param("now") Instant now);
+
+    /**
+     * Flips a book found by {@link #findLoanedWithoutOpenLoan} to available, unless a loan committed since
+     * then; returns 0 in that case.
+     */
+    @Modifying
+    @Query("UPDATE Book b SET b.available = true, b.version = b.version + 1, b.lastModified = :now " +
+            "WHERE b.id = :id AND (b.available IS NULL OR b.available = false) " +
+            "AND NOT EXISTS (SELECT l.id FROM Loan l WHERE l.book.id = :id AND l.returned = false)")
+    int reconcileAvailable(@Param("id") Long id, @Param("now") Instant now);
+
+    @Modifying
+    @Query("UPDATE Book b SET b.available = :available, b.version = b.version + 1, b.lastModified = :now " +
+            "WHERE b.id IN :ids")
+    int setAvailability(@Param("ids") Collection<Long> ids, @Param("available") boolean available,
+                        @Param("now") Instant now);
+
 }
@@ -0,0 +1,26 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.CustomerLoanStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface CustomerLoanStatsRepository extends JpaRepository<CustomerLoanStats, String> {
+
+    @Modifying
+    @Query("UPDATE CustomerLoanStats s SET s.totalLoans = s.totalLoans + :total, s.activeLoans = s.activeLoans + :active " +
+            "WHERE s.customer = :customer")
+    int addTo(@Param("customer") String customer, @Param("total") long total, @Param("active") long active);
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.CustomerLoanStats(l.customer, COUNT(l), " +
+            "SUM(CASE WHEN l.returned = false THEN 1 ELSE 0 END)) FROM Loan l WHERE l.customer IS NOT NULL " +
+            "GROUP BY l.customer")
+    List<CustomerLoanStats> countLoans();
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.CustomerLoanStats(h.customer, COUNT(h), 0L) " +
+            "FROM LoanHistory h WHERE h.customer IS NOT NULL GROUP BY h.customer")
+    List<CustomerLoanStats> countArchivedLoans();
+}
@@ -0,0 +1,34 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.DailyLoanStats;
+import com.persisti.libraryapi.model.projection.LoanStatsOverview;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyLoanStatsRepository extends JpaRepository<DailyLoanStats, LocalDate> {
+
+    @Modifying
+    @Query("UPDATE DailyLoanStats s SET s.totalLoans = s.totalLoans + :total, s.activeLoans = s.activeLoans + :active " +
+            "WHERE s.day = :day")
+    int addTo(@Param("day") LocalDate day, @Param("total") long total, @Param("active") long active);
+
+    List<DailyLoanStats> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+
+    @Query("SELECT new com.persisti.libraryapi.model.projection.LoanStatsOverview(SUM(s.totalLoans), SUM(s.activeLoans), " +
+            "SUM(CASE WHEN s.day < :lateBefore THEN s.activeLoans ELSE 0 END)) FROM DailyLoanStats s")
+    LoanStatsOverview findOverview(@Param("lateBefore") LocalDate lateBefore);
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.DailyLoanStats(l.loanDate, COUNT(l), " +
+            "SUM(CASE WHEN l.returned = false THEN 1 ELSE 0 END)) FROM Loan l WHERE l.loanDate IS NOT NULL " +
+            "GROUP BY l.loanDate")
+    List<DailyLoanStats> countLoans();
+
+    @Query("SELECT new com.persisti.libraryapi.model.entity.DailyLoanStats(h.loanDate, COUNT(h), 0L) " +
+            "FROM LoanHistory h WHERE h.loanDate IS NOT NULL GROUP BY h.loanDate")
+    List<DailyLoanStats> countArchivedLoans();
+}
@@ -0,0 +1,32 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.LoanHistory;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public interface LoanHistoryRepository extends JpaRepository<LoanHistory, Long>, LoanHistorySearchRepository {
+
+    @Query(value = LoanRepository.SUMMARY + "FROM LoanHistory AS l JOIN l.book AS b WHERE b = :book",
+            countQuery = "SELECT COUNT(l) FROM LoanHistory AS l WHERE l.book = :book")
+    Page<LoanSummary> findSummariesByBook(@Param("book") Book book, Pageable pageable);
+
+    @Query(LoanRepository.SUMMARY + "FROM LoanHistory AS l JOIN l.book AS b WHERE b = :book AND l.id > :lastId")
+    Slice<LoanSummary> findNextSummariesByBook(@Param("book") Book book, @Param("lastId") Long lastId, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = BookRepository.EXPORT_FETCH_SIZE))
+    @Query(LoanRepository.SUMMARY + "FROM LoanHistory AS l JOIN l.book AS b ORDER BY l.id")
+    Stream<LoanSummary> streamSummaries();
+
+}
@@ -0,0 +1,47 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.LoanHistory;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class LoanHistorySearchRepositoryImpl extends LoanSummaryQueries<LoanHistory> implements LoanHistorySearchRepository {
+
+    public LoanHistorySearchRepositoryImpl() {
+        super(LoanHistory.class);
+    }
+
+    @Override
+    public Page<LoanSummary> search(LoanSearchCriteria criteria, Pageable pageable) {
+        return summaries(criteria, pageable);
+    }
+
+    @Override
+    public Slice<LoanSummary> searchAfter(LoanSearchCriteria criteria, Long lastId, Pageable pageable) {
+        return summariesAfter(criteria, lastId, pageable);
+    }
+
+    /**
+     * Archived loans are all returned, and a loan date range also restricts the partition key so only
+     * the matching periods are read.
+     */
+    @Override
+    protected void addPredicates(CriteriaBuilder cb, Root<LoanHistory> loan, LoanSearchCriteria criteria,
+                                 List<Predicate> predicates) {
+        if (Boolean.FALSE.equals(criteria.getReturned())) {
+            predicates.add(cb.disjunction());
+        }
+        if (criteria.getLoanDateFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(loan.<Integer>get("period"), LoanHistory.periodOf(criteria.getLoanDateFrom())));
+        }
+        if (criteria.getLoanDateTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(loan.<Integer>get("period"), LoanHistory.periodOf(criteria.getLoanDateTo())));
+        }
+    }
+}
@@ -1,49 +1,76 @@
-//package com.persisti.libraryapi.model.repository;
-//
-//import com.persisti.libraryapi.model.entity.Book;
-//import com.persisti.libraryapi.model.entity.Loan;
-//import org.springframework.data.jpa.repository.JpaRepository;
-//import org.springframework.data.jpa.repository.Query;
-//import org.springframework.data.repository.query.Param;
-//
-//public interface LoanRepository extends JpaRepository<Loan, Long> {
-//
-//    @Query(value = "select case when ( count(l.id) > 0 ) then true else false end " +
-//            "from Loan l where l.book = :book and l.returned is null or l.returned is not true")
-//    boolean existsByBookAndNotReturned(@Param("book") Book book);
-//}
-
 package com.persisti.libraryapi.model.repository;
 
-        import com.persisti.libraryapi.model.entity.Book;
-        import com.persisti.libraryapi.model.entity.Loan;
-        import org.springframework.data.domain.Page;
-        import org.springframework.data.domain.Pageable;
-        import org.springframework.data.jpa.repository.JpaRepository;
-        import org.springframework.data.jpa.repository.Query;
-        import org.springframework.data.repository.query.Param;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
-        import java.time.LocalDate;
-        import java.util.List;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanSearchRepository {
+
+    String SUMMARY = "SELECT new com.persisti.libraryapi.model.projection.LoanSummary(" +
+            "l.id, l.customer, l.customerEmail, b.id, b.title, b.author, b.isbn) ";
 
     @Query(value = "SELECT CASE WHEN COUNT(l.id) > 0 THEN true ELSE false END " +
             "FROM Loan l WHERE l.book = :book AND (l.returned IS NULL OR l.returned <> true)")
     boolean existsByBookAndNotReturned(@Param("book") Book book);
 
-    @Query("SELECT l FROM Loan AS l JOIN l.book AS b WHERE b.isbn = :isbn OR l.customer = :customer")
-    Page<Loan> findByBookIsbnOrCustomer(
-            @Param("isbn") String isbn,
-            @Param("customer") String customer,
-            Pageable pageRequest
+    @Query(value = SUMMARY + "FROM Loan AS l JOIN l.book AS b WHERE b = :book",
+            countQuery = "SELECT COUNT(l) FROM Loan AS l WHERE l.book = :book")
+    Page<LoanSummary> findSummariesByBook(@Param("book") Book book, Pageable pageable);
+
+    @Query(SUMMARY + "FROM Loan AS l JOIN l.book AS b WHERE b = :book AND l.id > :lastId")
+    Slice<LoanSummary> findNextSummariesByBook(@Param("book") Book book, @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("SELECT l FROM Loan l WHERE l.id > :lastId AND l.loanDate <= :threeDaysAgo " +
+            "AND (l.returned IS NULL OR l.returned <> true) AND l.lateNoticeSentAt IS NULL")
+    Slice<Loan> findNextLateLoansNotNotified(
+            @Param("lastId") Long lastId,
+            @Param("threeDaysAgo") LocalDate threeDaysAgo,
+            Pageable pageable
     );
 
-    Page<Loan> findByBook(Book book, Pageable pageable);
+    @Modifying
+    @Transactional
+    @Query("UPDATE Loan l SET l.lateNoticeSentAt = :sentAt WHERE l.id IN :ids")
+    int markLateNoticeSent(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDate sentAt);
 
-    @Query("SELECT l FROM Loan l WHERE l.loanDate <= :threeDaysAgo AND (l.returned IS NULL OR l.returned <> true)")
-    List<Loan> findByLoanDateLessThanAndNotReturned(@Param("threeDaysAgo") LocalDate threeDaysAgo);
+    @Query("SELECT l FROM Loan l WHERE l.returned = true AND l.loanDate < :cutoff")
+    List<Loan> findArchivable(@Param("cutoff") LocalDate cutoff, Pageable pageable);
 
-}
+    @Modifying
+    @Query("DELETE FROM Loan l WHERE l.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * The ids among {@code ids} whose loans are open. Reads the rows themselves, not loans already in the
+     * persistence context.
+     */
+    @Query("SELECT l.id FROM Loan l WHERE l.id IN :ids AND l.activeBookId IS NOT NULL")
+    List<Long> findOpenIds(@Param("ids") Collection<Long> ids);
 
+    @Modifying
+    @Query("UPDATE Loan l SET l.returned = true, l.activeBookId = NULL WHERE l.id IN :ids AND l.returned = false")
+    int markReturned(@Param("ids") Collection<Long> ids);
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = BookRepository.EXPORT_FETCH_SIZE))
+    @Query(SUMMARY + "FROM Loan AS l JOIN l.book AS b ORDER BY l.id")
+    Stream<LoanSummary> streamSummaries();
+
+}
@@ -0,0 +1,43 @@
+package com.persisti.libraryapi.model.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Filters of a loan search; null fields are left out of the query. The book and the customer are
+ * alternatives, a loan matching either of them is found, and every other filter is combined with AND.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor @AllArgsConstructor
+public class LoanSearchCriteria {
+
+    private Long bookId;
+
+    private String customer;
+
+    private LocalDate loanDateFrom;
+
+    private LocalDate loanDateTo;
+
+    private Boolean returned;
+
+    /**
+     * Whether both the book and the customer were given, so the search is the union of the two.
+     */
+    public boolean isUnion() {
+        return bookId != null && customer != null;
+    }
+
+    LoanSearchCriteria byBook() {
+        return toBuilder().customer(null).build();
+    }
+
+    LoanSearchCriteria byCustomer() {
+        return toBuilder().bookId(null).build();
+    }
+}
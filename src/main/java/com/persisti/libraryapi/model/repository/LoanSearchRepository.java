@@ -0,0 +1,13 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+public interface LoanSearchRepository {
+
+    Page<LoanSummary> search(LoanSearchCriteria criteria, Pageable pageable);
+
+    Slice<LoanSummary> searchAfter(LoanSearchCriteria criteria, Long lastId, Pageable pageable);
+}
@@ -0,0 +1,37 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class LoanSearchRepositoryImpl extends LoanSummaryQueries<Loan> implements LoanSearchRepository {
+
+    public LoanSearchRepositoryImpl() {
+        super(Loan.class);
+    }
+
+    @Override
+    public Page<LoanSummary> search(LoanSearchCriteria criteria, Pageable pageable) {
+        return summaries(criteria, pageable);
+    }
+
+    @Override
+    public Slice<LoanSummary> searchAfter(LoanSearchCriteria criteria, Long lastId, Pageable pageable) {
+        return summariesAfter(criteria, lastId, pageable);
+    }
+
+    @Override
+    protected void addPredicates(CriteriaBuilder cb, Root<Loan> loan, LoanSearchCriteria criteria,
+                                 List<Predicate> predicates) {
+        if (criteria.getReturned() != null) {
+            predicates.add(cb.equal(loan.get("returned"), criteria.getReturned()));
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Criteria queries shared by the loan and loan history searches. Only the supplied filters become
+ * predicates, each on an indexed column of the loan table, and the book is filtered by its foreign key
+ * so the join to Book is only made to read the projected columns. A search by book or customer runs as
+ * one query per alternative, merged in memory, since an OR across the two columns cannot use either index.
+ */
+abstract class LoanSummaryQueries<T> {
+
+    private static final int SUMMARY_COLUMNS = 7;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final Class<T> type;
+
+    LoanSummaryQueries(Class<T> type) {
+        this.type = type;
+    }
+
+    /**
+     * Adds the predicates that depend on the table, such as the returned flag.
+     */
+    protected abstract void addPredicates(CriteriaBuilder cb, Root<T> loan, LoanSearchCriteria criteria,
+                                          List<Predicate> predicates);
+
+    Page<LoanSummary> summaries(LoanSearchCriteria criteria, Pageable pageable) {
+        if (criteria.isUnion()) {
+            return unionSummaries(criteria, pageable);
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanSummary> query = cb.createQuery(LoanSummary.class);
+        Root<T> loan = query.from(type);
+        select(cb, query, loan);
+        query.where(predicates(cb, loan, criteria));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), loan, cb));
+
+        TypedQuery<LoanSummary> typed = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typed.setFirstResult((int) pageable.getOffset());
+            typed.setMaxResults(pageable.getPageSize());
+        }
+        return PageableExecutionUtils.getPage(typed.getResultList(), pageable, () -> count(criteria));
+    }
+
+    Slice<LoanSummary> summariesAfter(LoanSearchCriteria criteria, Long lastId, Pageable pageable) {
+        if (criteria.isUnion()) {
+            return unionSummariesAfter(criteria, lastId, pageable);
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LoanSummary> query = cb.createQuery(LoanSummary.class);
+        Root<T> loan = query.from(type);
+        select(cb, query, loan);
+        Predicate[] predicates = predicates(cb, loan, criteria);
+        query.where(cb.and(cb.greaterThan(loan.<Long>get("id"), lastId), cb.and(predicates)));
+        query.orderBy(cb.asc(loan.get("id")));
+
+        List<LoanSummary> content = new ArrayList<>(entityManager.createQuery(query)
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList());
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content.remove(content.size() - 1);
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * Each alternative reads the first offset + size rows in page order, with the id breaking ties so both
+     * lists share one total order; the merge keeps a loan matching both once. The count subtracts the loans
+     * matching both, counted with the AND of the two filters.
+     */
+    private Page<LoanSummary> unionSummaries(LoanSearchCriteria criteria, Pageable pageable) {
+        int limit = pageable.isPaged() ? Math.toIntExact(pageable.getOffset() + pageable.getPageSize()) : -1;
+        List<Tuple> byBook = sortedRows(criteria.byBook(), pageable.getSort(), limit);
+        List<Tuple> byCustomer = sortedRows(criteria.byCustomer(), pageable.getSort(), limit);
+        boolean[] ascending = directions(pageable.getSort());
+
+        List<LoanSummary> merged = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        while ((limit < 0 || merged.size() < limit) && (i < byBook.size() || j < byCustomer.size())) {
+            Tuple next;
+            if (j == byCustomer.size()
+                    || (i < byBook.size() && compare(byBook.get(i), byCustomer.get(j), ascending) <= 0)) {
+                next = byBook.get(i++);
+            } else {
+                next = byCustomer.get(j++);
+            }
+            LoanSummary summary = summary(next);
+            if (seen.add(summary.getId())) {
+                merged.add(summary);
+            }
+        }
+        List<LoanSummary> content = pageable.isPaged()
+                ? new ArrayList<>(merged.subList(Math.min((int) pageable.getOffset(), merged.size()), merged.size()))
+                : merged;
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> count(criteria.byBook()) + count(criteria.byCustomer()) - count(criteria));
+    }
+
+    private Slice<LoanSummary> unionSummariesAfter(LoanSearchCriteria criteria, Long lastId, Pageable pageable) {
+        Slice<LoanSummary> byBook = summariesAfter(criteria.byBook(), lastId, pageable);
+        Slice<LoanSummary> byCustomer = summariesAfter(criteria.byCustomer(), lastId, pageable);
+        List<LoanSummary> left = byBook.getContent();
+        List<LoanSummary> right = byCustomer.getContent();
+        List<LoanSummary> content = new ArrayList<>(pageable.getPageSize());
+        int i = 0;
+        int j = 0;
+        while (content.size() < pageable.getPageSize() && (i < left.size() || j < right.size())) {
+            if (j == right.size() || (i < left.size() && left.get(i).getId() < right.get(j).getId())) {
+                content.add(left.get(i++));
+            } else if (i == left.size() || right.get(j).getId() < left.get(i).getId()) {
+                content.add(right.get(j++));
+            } else {
+                content.add(left.get(i++));
+                j++;
+            }
+        }
+        boolean hasNext = i < left.size() || j < right.size() || byBook.hasNext() || byCustomer.hasNext();
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * The projected columns followed by the values of the page order, so rows of two queries can be merged.
+     */
+    private List<Tuple> sortedRows(LoanSearchCriteria criteria, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> loan = query.from(type);
+        Join<T, Book> book = loan.join("book");
+        List<Order> orders = new ArrayList<>(QueryUtils.toOrders(sort, loan, cb));
+        if (sort.getOrderFor("id") == null) {
+            orders.add(cb.asc(loan.get("id")));
+        }
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(loan.get("id"));
+        selections.add(loan.get("customer"));
+        selections.add(loan.get("customerEmail"));
+        selections.add(book.get("id"));
+        selections.add(book.get("title"));
+        selections.add(book.get("author"));
+        selections.add(book.get("isbn"));
+        orders.forEach(order -> selections.add(order.getExpression()));
+        query.multiselect(selections);
+        query.where(predicates(cb, loan, criteria));
+        query.orderBy(orders);
+
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (limit >= 0) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+
+    private static boolean[] directions(Sort sort) {
+        List<Boolean> ascending = new ArrayList<>();
+        sort.forEach(order -> ascending.add(order.isAscending()));
+        if (sort.getOrderFor("id") == null) {
+            ascending.add(true);
+        }
+        boolean[] directions = new boolean[ascending.size()];
+        for (int k = 0; k < directions.length; k++) {
+            directions[k] = ascending.get(k);
+        }
+        return directions;
+    }
+
+    /**
+     * Compares two rows by the order values behind the projected columns; nulls come first, as in H2.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Tuple left, Tuple right, boolean[] ascending) {
+        for (int k = 0; k < ascending.length; k++) {
+            Comparable a = (Comparable) left.get(SUMMARY_COLUMNS + k);
+            Comparable b = (Comparable) right.get(SUMMARY_COLUMNS + k);
+            int result = a == null ? (b == null ? 0 : -1) : (b == null ? 1 : a.compareTo(b));
+            if (result != 0) {
+                return ascending[k] ? result : -result;
+            }
+        }
+        return 0;
+    }
+
+    private static LoanSummary summary(Tuple row) {
+        return new LoanSummary(row.get(0, Long.class), row.get(1, String.class), row.get(2, String.class),
+                row.get(3, Long.class), row.get(4, String.class), row.get(5, String.class), row.get(6, String.class));
+    }
+
+    private long count(LoanSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> loan = query.from(type);
+        query.select(cb.count(loan));
+        query.where(predicates(cb, loan, criteria));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private void select(CriteriaBuilder cb, CriteriaQuery<LoanSummary> query, Root<T> loan) {
+        Join<T, Book> book = loan.join("book");
+        query.select(cb.construct(LoanSummary.class,
+                loan.get("id"), loan.get("customer"), loan.get("customerEmail"),
+                book.get("id"), book.get("title"), book.get("author"), book.get("isbn")));
+    }
+
+    private Predicate[] predicates(CriteriaBuilder cb, Root<T> loan, LoanSearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getBookId() != null) {
+            predicates.add(cb.equal(loan.get("book").get("id"), criteria.getBookId()));
+        }
+        if (criteria.getCustomer() != null) {
+            predicates.add(cb.equal(loan.get("customer"), criteria.getCustomer()));
+        }
+        if (criteria.getLoanDateFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(loan.<LocalDate>get("loanDate"), criteria.getLoanDateFrom()));
+        }
+        if (criteria.getLoanDateTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(loan.<LocalDate>get("loanDate"), criteria.getLoanDateTo()));
+        }
+        addPredicates(cb, loan, criteria, predicates);
+        return predicates.toArray(new Predicate[0]);
+    }
+}
@@ -0,0 +1,40 @@
+package com.persisti.libraryapi.model.repository;
+
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("SELECT e FROM OutboxEvent e WHERE e.position IS NULL ORDER BY e.id")
+    List<OutboxEvent> findUnsequenced(Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(e.position), 0) FROM OutboxEvent e")
+    long findLastPosition();
+
+    /**
+     * How many events have ever been committed: the sequenced ones are numbered without gaps and the
+     * latest of them is never purged, so the highest position counts them and the unsequenced ones are
+     * added. Only grows, by one per event, in the order the events were committed.
+     */
+    @Query(value = "SELECT COALESCE(MAX(posicao), 0) + (SELECT COUNT(*) FROM outbox_event WHERE posicao IS NULL) " +
+            "FROM outbox_event", nativeQuery = true)
+    long findRevision();
+
+    @Query("SELECT e FROM OutboxEvent e WHERE e.position > :after ORDER BY e.position")
+    List<OutboxEvent> findAfter(@Param("after") long after, Pageable pageable);
+
+    /**
+     * Keeps the latest sequenced event whatever its age, as the next position is counted from it.
+     */
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.createdAt < :before " +
+            "AND e.position < (SELECT MAX(o.position) FROM OutboxEvent o)")
+    int deleteSequencedBefore(@Param("before") Instant before);
+}
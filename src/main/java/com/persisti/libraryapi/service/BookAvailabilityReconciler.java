@@ -0,0 +1,31 @@
+package com.persisti.libraryapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "application.books.availability.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class BookAvailabilityReconciler {
+
+    private static final String CRON_RECONCILE = "0 30 3 * * ?";
+
+    private final BookService bookService;
+
+    /**
+     * Realigns the availability flag of every book with its open loans, repairing drift left by rows
+     * written outside LoanService.
+     */
+    @Scheduled(cron = "${application.books.availability.reconcile.cron:" + CRON_RECONCILE + "}")
+    public void reconcile() {
+        log.info("reconciliando disponibilidade dos livros");
+        int repaired = bookService.reconcileAvailability();
+        log.info("disponibilidade reconciliada: {} livros corrigidos", repaired);
+    }
+}
@@ -1,11 +1,18 @@
 package com.persisti.libraryapi.service;
 
+import com.persisti.libraryapi.api.dto.BookImportResultDTO;
 import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.projection.BookCatalogVersion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public interface BookService {
@@ -19,5 +26,23 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, Long lastId, int size);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    BookImportResultDTO importBooks(Iterator<Book> books);
+
+    boolean markLoaned(Book book);
+
+    void markAvailable(Book book);
+
+    Set<Long> markAllLoaned(Collection<Long> bookIds);
+
+    void markAllAvailable(Collection<Long> bookIds);
+
+    int reconcileAvailability();
+
+    BookCatalogVersion getCatalogVersion();
+
+    void exportBooks(Consumer<Book> sink);
 }
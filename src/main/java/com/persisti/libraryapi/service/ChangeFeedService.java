@@ -0,0 +1,32 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface ChangeFeedService {
+
+    void record(Book book, OutboxEvent.Type type);
+
+    void record(Loan loan, OutboxEvent.Type type);
+
+    void recordAvailability(Collection<Long> bookIds, boolean available);
+
+    int sequence();
+
+    /**
+     * A number that grows with every committed write recorded in the feed, in commit order.
+     */
+    long revision();
+
+    List<OutboxEvent> read(long after, int limit);
+
+    CompletableFuture<List<OutboxEvent>> await(long after, int limit, long timeoutMillis);
+
+    int purge(Instant before);
+}
@@ -1,7 +1,13 @@
-//package com.persisti.libraryapi.service;
-//
-//import java.util.List;
-//
-//public interface EmailService {
-//    void sendMails(String message, List<String> mailsList);
-//}
+package com.persisti.libraryapi.service;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface EmailService {
+
+    /**
+     * Sends the message to every recipient and returns the recipients that could not be reached
+     * after all retries.
+     */
+    Set<String> sendMails(String message, Collection<String> recipients);
+}
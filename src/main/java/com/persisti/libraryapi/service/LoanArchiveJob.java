@@ -0,0 +1,40 @@
+package com.persisti.libraryapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "application.loans.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class LoanArchiveJob {
+
+    private static final String CRON_ARCHIVE = "0 0 2 * * ?";
+
+    @Value("${application.loans.archive.after-days:180}")
+    private int afterDays;
+
+    @Value("${application.loans.archive.chunk-size:500}")
+    private int chunkSize;
+
+    private final LoanService loanService;
+
+    /**
+     * Keeps the Loan table down to open and recent loans by moving older returned ones to the history table.
+     */
+    @Scheduled(cron = "${application.loans.archive.cron:" + CRON_ARCHIVE + "}")
+    public void archive() {
+        LocalDate cutoff = LocalDate.now().minusDays(afterDays);
+        log.info("arquivando emprestimos devolvidos anteriores a {}", cutoff);
+        int archived = loanService.archiveReturnedBefore(cutoff, chunkSize);
+        log.info("emprestimos arquivados: {}", archived);
+    }
+}
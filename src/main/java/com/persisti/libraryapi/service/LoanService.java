@@ -1,13 +1,19 @@
 package com.persisti.libraryapi.service;
 
+import com.persisti.libraryapi.api.dto.LoanBatchResultDTO;
 import com.persisti.libraryapi.api.dto.LoanFilterDTO;
 import com.persisti.libraryapi.model.entity.Book;
 import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface LoanService {
     Loan save(Loan loan);
@@ -16,9 +22,23 @@ public interface LoanService {
 
     Loan update(Loan loan);
 
-    Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable);
+    LoanBatchResultDTO saveAll(List<Loan> loans);
 
-    Page<Loan> getLoansByBook(Book book, Pageable pageable);
+    LoanBatchResultDTO returnAll(List<Long> loanIds);
 
-    List<Loan> getAllLateLoans();
+    Page<LoanSummary> find(LoanFilterDTO filterDTO, Pageable pageable);
+
+    Slice<LoanSummary> findAfter(LoanFilterDTO filterDTO, Long lastId, int size);
+
+    Page<LoanSummary> getLoansByBook(Book book, boolean includeHistory, Pageable pageable);
+
+    Slice<LoanSummary> getLoansByBookAfter(Book book, boolean includeHistory, Long lastId, int size);
+
+    Slice<Loan> getLateLoans(Long lastId, int size);
+
+    void markLateNoticeSent(Collection<Long> loanIds);
+
+    int archiveReturnedBefore(LocalDate cutoff, int chunkSize);
+
+    void exportLoans(boolean includeHistory, Consumer<LoanSummary> sink);
 }
@@ -0,0 +1,31 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.model.entity.BookLoanStats;
+import com.persisti.libraryapi.model.entity.CustomerLoanStats;
+import com.persisti.libraryapi.model.entity.DailyLoanStats;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanStatsOverview;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface LoanStatisticsService {
+
+    void loanCreated(Loan loan);
+
+    void loanReturned(Loan loan);
+
+    void loanReopened(Loan loan);
+
+    void flush();
+
+    int recompute();
+
+    LoanStatsOverview getOverview();
+
+    BookLoanStats getBookStats(Long bookId);
+
+    CustomerLoanStats getCustomerStats(String customer);
+
+    List<DailyLoanStats> getDailyStats(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,31 @@
+package com.persisti.libraryapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "application.stats.recompute.enabled", havingValue = "true", matchIfMissing = true)
+public class LoanStatsRecomputeJob {
+
+    private static final String CRON_RECOMPUTE = "0 0 4 * * ?";
+
+    private final LoanStatisticsService statistics;
+
+    /**
+     * Checks the incrementally maintained loan statistics against a full count of the loan tables and
+     * repairs any drift, e.g. from rows written outside LoanService.
+     */
+    @Scheduled(cron = "${application.stats.recompute.cron:" + CRON_RECOMPUTE + "}")
+    public void recompute() {
+        log.info("recalculando estatisticas de emprestimos");
+        int drifted = statistics.recompute();
+        log.info("estatisticas de emprestimos recalculadas: {} linhas divergentes corrigidas", drifted);
+    }
+}
@@ -0,0 +1,39 @@
+package com.persisti.libraryapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "application.outbox.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxPurgeJob {
+
+    private static final String CRON_PURGE = "0 15 2 * * ?";
+
+    @Value("${application.outbox.retention-days:7}")
+    private int retentionDays;
+
+    private final ChangeFeedService changeFeed;
+
+    /**
+     * Drops change events older than the retention period; consumers further behind than that have to
+     * resync from the listings.
+     */
+    @Scheduled(cron = "${application.outbox.purge.cron:" + CRON_PURGE + "}")
+    public void purge() {
+        Instant before = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        log.info("removendo eventos do outbox anteriores a {}", before);
+        int purged = changeFeed.purge(before);
+        log.info("eventos do outbox removidos: {}", purged);
+    }
+}
@@ -1,34 +1,141 @@
-//package com.persisti.libraryapi.service;
-//
-//import com.persisti.libraryapi.model.entity.Loan;
-//import lombok.RequiredArgsConstructor;
-//import org.springframework.beans.factory.annotation.Value;
-//import org.springframework.scheduling.annotation.Scheduled;
-//import org.springframework.stereotype.Service;
-//
-//import java.util.List;
-//import java.util.stream.Collectors;
-//
-//@Service
-//@RequiredArgsConstructor
-//public class ScheduleService {
-//
-//    private static String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
-//
-//    @Value("${application.mail.lateloans.message}")
-//    private String message;
-//
-//    private final LoanService loanService;
-//    private final EmailService emailService;
-//
-//    @Scheduled
-//    public void sendMailToLateLoans(){
-//        List<Loan> allLateLoans = loanService.getAllLateLoans();
-//        List<String> mailsList = allLateLoans.stream()
-//                .map(loan -> loan.getCustomerEmail())
-//                .collect(Collectors.toList());
-//
-//
-//        emailService.sendMails(message, mailsList);
-//    }
-//}
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.model.entity.Loan;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Lazy(false)
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "application.mail.lateloans.enabled", havingValue = "true", matchIfMissing = true)
+public class ScheduleService {
+
+    private static final String CRON_LATE_LOANS = "0 0 0 1/1 * ?";
+
+    @Value("${application.mail.lateloans.message}")
+    private String message;
+
+    @Value("${application.mail.lateloans.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${application.mail.lateloans.workers:4}")
+    private int workers;
+
+    private final LoanService loanService;
+    private final EmailService emailService;
+
+    /**
+     * Walks the late loans that were not notified yet in id-ordered chunks and hands each chunk to a
+     * bounded worker pool; when the pool is saturated the scheduler thread sends the chunk itself, which
+     * throttles reading. A customer with several late loans gets a single email per run, and loans are
+     * only marked as notified once their email was accepted, so a rerun resumes where this one failed.
+     * Loans of a customer already emailed by an earlier chunk are held back until the run ends and only
+     * marked if that email went through.
+     */
+    @Scheduled(cron = "${application.mail.lateloans.cron:" + CRON_LATE_LOANS + "}")
+    public void sendMailToLateLoans(){
+        log.info("enviando emails de emprestimos atrasados");
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers), new ThreadPoolExecutor.CallerRunsPolicy());
+        Set<String> recipients = ConcurrentHashMap.newKeySet();
+        Set<String> delivered = ConcurrentHashMap.newKeySet();
+        Map<String, Queue<Long>> deferred = new ConcurrentHashMap<>();
+        AtomicLong sent = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        try {
+            Long lastId = 0L;
+            Slice<Loan> chunk;
+            do {
+                chunk = loanService.getLateLoans(lastId, chunkSize);
+                List<Loan> loans = chunk.getContent();
+                if (loans.isEmpty()) {
+                    break;
+                }
+                lastId = loans.get(loans.size() - 1).getId();
+
+                Map<String, List<Long>> loansByRecipient = new LinkedHashMap<>();
+                for (Loan loan : loans) {
+                    String email = loan.getCustomerEmail();
+                    if (email != null && !email.trim().isEmpty()) {
+                        loansByRecipient.computeIfAbsent(email.trim(), key -> new ArrayList<>()).add(loan.getId());
+                    }
+                }
+                pool.execute(() -> sendBatch(loansByRecipient, recipients, delivered, deferred, sent, failed));
+            } while (chunk.hasNext());
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        markDeferred(deferred, delivered);
+        log.info("emails de emprestimos atrasados: {} enviados, {} falhas", sent.get(), failed.get());
+    }
+
+    private void sendBatch(Map<String, List<Long>> loansByRecipient, Set<String> recipients, Set<String> delivered,
+                           Map<String, Queue<Long>> deferred, AtomicLong sent, AtomicLong failed) {
+        List<String> batch = new ArrayList<>();
+        loansByRecipient.forEach((email, loanIds) -> {
+            if (recipients.add(email)) {
+                batch.add(email);
+            } else {
+                deferred.computeIfAbsent(email, key -> new ConcurrentLinkedQueue<>()).addAll(loanIds);
+            }
+        });
+
+        Set<String> unreachable = batch.isEmpty()
+                ? Collections.<String>emptySet()
+                : emailService.sendMails(message, batch);
+        List<Long> notified = new ArrayList<>();
+        for (String email : batch) {
+            if (unreachable.contains(email)) {
+                // a later chunk may try this recipient again
+                recipients.remove(email);
+            } else {
+                delivered.add(email);
+                notified.addAll(loansByRecipient.get(email));
+            }
+        }
+        if (!notified.isEmpty()) {
+            loanService.markLateNoticeSent(notified);
+        }
+        sent.addAndGet(batch.size() - unreachable.size());
+        failed.addAndGet(unreachable.size());
+    }
+
+    private void markDeferred(Map<String, Queue<Long>> deferred, Set<String> delivered) {
+        List<Long> notified = new ArrayList<>();
+        deferred.forEach((email, loanIds) -> {
+            if (delivered.contains(email)) {
+                notified.addAll(loanIds);
+            }
+        });
+        for (int from = 0; from < notified.size(); from += chunkSize) {
+            loanService.markLateNoticeSent(notified.subList(from, Math.min(from + chunkSize, notified.size())));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.persisti.libraryapi.service.cache;
+
+import com.persisti.libraryapi.config.CacheConfig;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Map from ISBN to book id, used to resolve books for loan creation through the books cache, so a book
+ * that is cached under its id needs no lookup query. Size and expiry follow the {@code bookIdsByIsbn}
+ * cache configuration.
+ */
+@Component
+public class IsbnCache {
+
+    private final Cache ids;
+
+    public IsbnCache(CacheManager cacheManager) {
+        this.ids = cacheManager.getCache(CacheConfig.BOOK_IDS_BY_ISBN);
+        if (this.ids == null) {
+            throw new IllegalStateException("Cache " + CacheConfig.BOOK_IDS_BY_ISBN + " is not configured");
+        }
+    }
+
+    public Long get(String isbn) {
+        return isbn == null ? null : ids.get(isbn, Long.class);
+    }
+
+    public void put(String isbn, Long id) {
+        if (isbn != null && id != null) {
+            ids.put(isbn, id);
+        }
+    }
+
+    public void evict(String isbn) {
+        if (isbn != null) {
+            ids.evict(isbn);
+        }
+    }
+}
@@ -1,57 +1,162 @@
 package com.persisti.libraryapi.service.impl;
 
+import com.persisti.libraryapi.api.dto.BookImportErrorDTO;
+import com.persisti.libraryapi.api.dto.BookImportResultDTO;
+import com.persisti.libraryapi.config.CacheConfig;
+import com.persisti.libraryapi.config.MetricsConfig;
 import com.persisti.libraryapi.exception.BusinessException;
+import com.persisti.libraryapi.exception.ConstraintViolations;
 import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import com.persisti.libraryapi.model.projection.BookCatalogVersion;
 import com.persisti.libraryapi.model.repository.BookRepository;
 import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.ChangeFeedService;
+import com.persisti.libraryapi.service.cache.IsbnCache;
+import com.persisti.libraryapi.service.search.BookSearchIndex;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Slf4j
 public class BookServiceImpl implements BookService {
 
+    private static final int IMPORT_CHUNK_SIZE = 500;
+    private static final int MAX_IMPORT_ERRORS = 1000;
+
     private BookRepository repository;
+    private IsbnCache isbnCache;
+    private BookSearchIndex searchIndex;
+    private EntityManager entityManager;
+    private ChangeFeedService changeFeed;
+    private Cache bookCache;
+    private TransactionTemplate transactionTemplate;
 
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(BookRepository repository, IsbnCache isbnCache, BookSearchIndex searchIndex,
+                           EntityManager entityManager, ChangeFeedService changeFeed, CacheManager cacheManager,
+                           PlatformTransactionManager transactionManager) {
         this.repository = repository;
+        this.isbnCache = isbnCache;
+        this.searchIndex = searchIndex;
+        this.entityManager = entityManager;
+        this.changeFeed = changeFeed;
+        this.bookCache = cacheManager.getCache(CacheConfig.BOOKS);
+        if (this.bookCache == null) {
+            throw new IllegalStateException("Cache " + CacheConfig.BOOKS + " is not configured");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
     public Book save(Book book) {
-        if(repository.existsByIsbn(book.getIsbn())){
-           throw new BusinessException("Isbn ja cadastrado!");
+        book.setAvailable(true);
+        Book saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                Book created = repository.saveAndFlush(book);
+                changeFeed.record(created, OutboxEvent.Type.CREATED);
+                return created;
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (isIsbnViolation(e)) {
+                throw new BusinessException("Isbn ja cadastrado!");
+            }
+            throw e;
         }
-        return repository.save(book);
+        isbnCache.put(saved.getIsbn(), saved.getId());
+        searchIndex.index(saved);
+        return saved;
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Cacheable(cacheNames = CacheConfig.BOOKS, key = "#id", unless = "#result == null")
+    @Transactional(readOnly = true)
     public Optional<Book> getById(Long id) {
         return this.repository.findById(id);
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#book.id")
     public void delete(Book book) {
         if(book == null ||book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null");
         }
-        this.repository.delete(book);
+        transactionTemplate.execute(status -> {
+            repository.delete(book);
+            changeFeed.record(book, OutboxEvent.Type.DELETED);
+            return null;
+        });
+        isbnCache.evict(book.getIsbn());
+        searchIndex.remove(book.getId());
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.BOOKS, key = "#book.id")
     public Book update(Book book) {
         if(book == null ||book.getId() == null){
             throw new IllegalArgumentException("Book id cant be null");
         }
-        return this.repository.save(book);
+        Book updated = transactionTemplate.execute(status -> {
+            Book saved = repository.saveAndFlush(book);
+            changeFeed.record(saved, OutboxEvent.Type.UPDATED);
+            return saved;
+        });
+        searchIndex.index(updated);
+        return updated;
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
+        if (searchIndex.supports(filter, pageRequest)) {
+            return findIndexed(filter, pageRequest);
+        }
+        if (pageRequest.getSort().getOrderFor(BookSearchIndex.RELEVANCE) != null) {
+            pageRequest = PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize(), Sort.by("id"));
+        }
         Example<Book> example = Example.of(filter,
                 ExampleMatcher
                         .matching()
@@ -63,7 +168,318 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Slice<Book> findAfter(Book filter, Long lastId, int size) {
+        return repository.findNextPage(lastId, filter.getTitle(), filter.getAuthor(), filter.getIsbn(),
+                filter.getAvailable(), PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
     public Optional<Book> getBookByIsbn(String isbn) {
-        return repository.findByIsbn(isbn);
+        Long id = isbnCache.get(isbn);
+        if (id != null) {
+            // the book comes from the books cache that getById fills, or from a primary key lookup; a stale
+            // id falls through to the isbn query
+            Book book = bookCache.get(id, Book.class);
+            if (book == null) {
+                book = repository.findById(id).orElse(null);
+                if (book != null) {
+                    bookCache.put(id, book);
+                }
+            }
+            if (book != null && isbn.equals(book.getIsbn())) {
+                return Optional.of(book);
+            }
+            isbnCache.evict(isbn);
+        }
+        Optional<Book> book = repository.findByIsbn(isbn);
+        book.ifPresent(found -> isbnCache.put(isbn, found.getId()));
+        return book;
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public BookImportResultDTO importBooks(Iterator<Book> books) {
+        long start = System.currentTimeMillis();
+        ImportProgress progress = new ImportProgress();
+        List<ImportRow> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        long row = 0;
+        while (books.hasNext()) {
+            chunk.add(new ImportRow(++row, books.next()));
+            if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                importChunk(chunk, progress);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, progress);
+        }
+
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
+        log.info("importacao de livros concluida: {} recebidos, {} importados, {} falhas em {} ms",
+                progress.received, progress.imported, progress.failed, elapsed);
+        return BookImportResultDTO.builder()
+                .received(progress.received)
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .elapsedMillis(elapsed)
+                .rowsPerSecond(progress.received * 1000.0 / elapsed)
+                .errorsTruncated(progress.failed > progress.errors.size())
+                .errors(progress.errors)
+                .build();
+    }
+
+    /**
+     * Validates and deduplicates a chunk with one set-based ISBN query, then inserts the remaining books
+     * in JDBC batches inside a single transaction. If a concurrent writer wins one of the ISBNs the chunk
+     * is retried row by row so that only the conflicting rows fail.
+     */
+    private void importChunk(List<ImportRow> chunk, ImportProgress progress) {
+        Map<String, ImportRow> unique = new LinkedHashMap<>();
+        for (ImportRow row : chunk) {
+            progress.received++;
+            Book book = row.book;
+            if (isBlank(book.getTitle()) || isBlank(book.getAuthor()) || isBlank(book.getIsbn())) {
+                progress.fail(row, "Titulo, autor e isbn sao obrigatorios");
+            } else if (unique.putIfAbsent(book.getIsbn(), row) != null) {
+                progress.fail(row, "Isbn repetido na importacao");
+            }
+        }
+        if (!unique.isEmpty()) {
+            for (String isbn : repository.findExistingIsbns(unique.keySet())) {
+                progress.fail(unique.remove(isbn), "Isbn ja cadastrado!");
+            }
+        }
+        if (unique.isEmpty()) {
+            return;
+        }
+
+        List<Book> batch = new ArrayList<>(unique.size());
+        unique.values().forEach(row -> {
+            row.book.setId(null);
+            row.book.setAvailable(true);
+            batch.add(row.book);
+        });
+        try {
+            transactionTemplate.execute(status -> {
+                batch.forEach(entityManager::persist);
+                entityManager.flush();
+                batch.forEach(book -> changeFeed.record(book, OutboxEvent.Type.CREATED));
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (!isIsbnViolation(e)) {
+                throw e;
+            }
+            for (ImportRow row : unique.values()) {
+                row.book.setId(null);
+                try {
+                    save(row.book);
+                    progress.imported++;
+                } catch (BusinessException rowError) {
+                    progress.fail(row, rowError.getMessage());
+                }
+            }
+            return;
+        }
+        batch.forEach(searchIndex::index);
+        progress.imported += batch.size();
+    }
+
+    /**
+     * Atomically flips the book from available to loaned; false means it was already loaned. Must run in
+     * the transaction that inserts the loan. Like the other availability updates, it evicts the cached book
+     * once that transaction commits, as a read in between would cache the old state again.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markLoaned(Book book) {
+        boolean loaned = repository.markLoaned(book.getId(), Instant.now()) == 1;
+        if (loaned) {
+            afterCommit(() -> {
+                bookCache.evict(book.getId());
+                searchIndex.setAvailable(book.getId(), false);
+            });
+        }
+        return loaned;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markAvailable(Book book) {
+        repository.markAvailable(book.getId(), Instant.now());
+        afterCommit(() -> {
+            bookCache.evict(book.getId());
+            searchIndex.setAvailable(book.getId(), true);
+        });
+    }
+
+    /**
+     * Set-based {@link #markLoaned}: returns the books that were flipped, leaving out those already loaned.
+     * The caller must hold the books' locks; if another writer still flips one of them between the read
+     * and the update, the transaction is failed with an optimistic locking error.
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Set<Long> markAllLoaned(Collection<Long> bookIds) {
+        Set<Long> loaned = new HashSet<>();
+        Instant now = Instant.now();
+        for (List<Long> ids : partition(new ArrayList<>(bookIds))) {
+            Set<Long> available = repository.findAvailableIds(ids);
+            if (!available.isEmpty() && repository.markAllLoaned(available, now) != available.size()) {
+                throw new OptimisticLockingFailureException("Book availability changed concurrently");
+            }
+            loaned.addAll(available);
+        }
+        afterCommit(() -> loaned.forEach(id -> {
+            bookCache.evict(id);
+            searchIndex.setAvailable(id, false);
+        }));
+        return loaned;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void markAllAvailable(Collection<Long> bookIds) {
+        List<Long> available = new ArrayList<>(bookIds);
+        Instant now = Instant.now();
+        for (List<Long> ids : partition(available)) {
+            repository.setAvailability(ids, true, now);
+        }
+        afterCommit(() -> available.forEach(id -> {
+            bookCache.evict(id);
+            searchIndex.setAvailable(id, true);
+        }));
+    }
+
+    /**
+     * Repairs availability flags that drifted from the Loan table, e.g. rows written outside the service.
+     * It runs without the loan locks, so each flag is flipped by an update that checks the Loan table again
+     * and only the books it actually changed are recorded; drift is rare, so one update per book is cheap.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional
+    public int reconcileAvailability() {
+        Instant now = Instant.now();
+        List<Long> loaned = new ArrayList<>();
+        for (Long id : repository.findAvailableWithOpenLoan()) {
+            if (repository.reconcileLoaned(id, now) == 1) {
+                loaned.add(id);
+            }
+        }
+        List<Long> available = new ArrayList<>();
+        for (Long id : repository.findLoanedWithoutOpenLoan()) {
+            if (repository.reconcileAvailable(id, now) == 1) {
+                available.add(id);
+            }
+        }
+        changeFeed.recordAvailability(loaned, false);
+        changeFeed.recordAvailability(available, true);
+        afterCommit(() -> {
+            loaned.forEach(id -> {
+                bookCache.evict(id);
+                searchIndex.setAvailable(id, false);
+            });
+            available.forEach(id -> {
+                bookCache.evict(id);
+                searchIndex.setAvailable(id, true);
+            });
+        });
+        return loaned.size() + available.size();
+    }
+
+    /**
+     * Read before the listing it versions, so the listing is at least as new as both parts: the feed
+     * revision covers what the database serves and the index generation what the search index serves,
+     * which only catches up after commit.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public BookCatalogVersion getCatalogVersion() {
+        return new BookCatalogVersion(changeFeed.revision(), searchIndex.generation());
+    }
+
+    /**
+     * Hands every book to the sink in id order within one read-only transaction, detaching each one once
+     * written so the persistence context stays empty however many rows are exported.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> sink) {
+        try (Stream<Book> books = repository.streamAll()) {
+            books.forEach(book -> {
+                sink.accept(book);
+                entityManager.detach(book);
+            });
+        }
+    }
+
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> partitions = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += IMPORT_CHUNK_SIZE) {
+            partitions.add(ids.subList(from, Math.min(from + IMPORT_CHUNK_SIZE, ids.size())));
+        }
+        return partitions;
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private Page<Book> findIndexed(Book filter, Pageable pageRequest) {
+        Page<Long> ids = searchIndex.search(filter, pageRequest);
+        Map<Long, Book> books = repository.findAllById(ids.getContent())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<Book> content = ids.getContent()
+                .stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageRequest, ids.getTotalElements());
+    }
+
+    private boolean isIsbnViolation(Throwable e) {
+        return ConstraintViolations.isViolationOf(e, Book.ISBN_CONSTRAINT);
+    }
+
+    private static class ImportRow {
+        private final long row;
+        private final Book book;
+
+        ImportRow(long row, Book book) {
+            this.row = row;
+            this.book = book;
+        }
+    }
+
+    private static class ImportProgress {
+        private long received;
+        private long imported;
+        private long failed;
+        private final List<BookImportErrorDTO> errors = new ArrayList<>();
+
+        void fail(ImportRow row, String message) {
+            failed++;
+            if (errors.size() < MAX_IMPORT_ERRORS) {
+                errors.add(BookImportErrorDTO.builder().row(row.row).isbn(row.book.getIsbn()).message(message).build());
+            }
+        }
     }
 }
@@ -0,0 +1,279 @@
+package com.persisti.libraryapi.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import com.persisti.libraryapi.model.repository.OutboxEventRepository;
+import com.persisti.libraryapi.service.ChangeFeedService;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transactional outbox behind the change feed. Book and loan writes add their events through
+ * {@link #record} in their own transaction; after commit a single sequencer thread numbers the committed
+ * events, and consumers waiting in {@link #await} are answered as soon as positions past their offset exist.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private final OutboxEventRepository repository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int sequenceBatchSize;
+
+    private final ExecutorService sequencer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-sequencer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sequencePending = new AtomicBoolean();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private volatile long lastPosition = -1;
+
+    public ChangeFeedServiceImpl(OutboxEventRepository repository, EntityManager entityManager,
+                                 ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                                 @Value("${application.outbox.sequence-batch-size:1000}") int sequenceBatchSize) {
+        this.repository = repository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sequenceBatchSize = sequenceBatchSize;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Book book, OutboxEvent.Type type) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", book.getId());
+        if (type != OutboxEvent.Type.DELETED) {
+            payload.put("title", book.getTitle());
+            payload.put("author", book.getAuthor());
+            payload.put("isbn", book.getIsbn());
+            payload.put("available", book.getAvailable());
+            payload.put("version", book.getVersion());
+        }
+        persist(OutboxEvent.Aggregate.BOOK, book.getId(), type, payload);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Loan loan, OutboxEvent.Type type) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", loan.getId());
+        payload.put("bookId", loan.getBook() == null ? null : loan.getBook().getId());
+        payload.put("customer", loan.getCustomer());
+        payload.put("loanDate", loan.getLoanDate() == null ? null : loan.getLoanDate().toString());
+        payload.put("returned", loan.getReturned());
+        persist(OutboxEvent.Aggregate.LOAN, loan.getId(), type, payload);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAvailability(Collection<Long> bookIds, boolean available) {
+        for (Long id : bookIds) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("id", id);
+            payload.put("available", available);
+            persist(OutboxEvent.Aggregate.BOOK, id, OutboxEvent.Type.AVAILABILITY_CHANGED, payload);
+        }
+    }
+
+    /**
+     * Numbers the committed events that have no position yet, in id order, continuing from the highest
+     * position. The unique position constraint makes a concurrent sequencer on another instance fail its
+     * batch, which is simply picked up again by the next run.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public synchronized int sequence() {
+        int sequenced = 0;
+        int batch;
+        try {
+            do {
+                batch = transactionTemplate.execute(status -> {
+                    List<OutboxEvent> pending = repository.findUnsequenced(PageRequest.of(0, sequenceBatchSize));
+                    long position = repository.findLastPosition();
+                    for (OutboxEvent event : pending) {
+                        event.setPosition(++position);
+                    }
+                    return pending.size();
+                });
+                sequenced += batch;
+            } while (batch == sequenceBatchSize);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("posicoes do outbox atribuidas concorrentemente, nova tentativa no proximo ciclo");
+        }
+        lastPosition = repository.findLastPosition();
+        answerWaiters();
+        return sequenced;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long revision() {
+        return repository.findRevision();
+    }
+
+    /**
+     * Safety net for events committed by other instances and for signals lost at shutdown.
+     */
+    @Scheduled(fixedDelayString = "${application.outbox.sequence-interval-ms:1000}")
+    public void sequencePeriodically() {
+        requestSequencing();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<OutboxEvent> read(long after, int limit) {
+        return repository.findAfter(after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Events after {@code after}, answered right away when there are any and otherwise as soon as the
+     * sequencer numbers new ones, or with an empty list once the timeout elapses.
+     */
+    @Override
+    public CompletableFuture<List<OutboxEvent>> await(long after, int limit, long timeoutMillis) {
+        if (timeoutMillis <= 0 || knownPosition() > after) {
+            return CompletableFuture.completedFuture(read(after, limit));
+        }
+        Waiter waiter = new Waiter(after, limit);
+        waiters.add(waiter);
+        // the sequencer may have answered the waiters between the check above and the add
+        if (lastPosition > after && waiters.remove(waiter)) {
+            waiter.future.complete(read(after, limit));
+        }
+        waiter.future.completeOnTimeout(Collections.emptyList(), timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((events, error) -> waiters.remove(waiter));
+        return waiter.future;
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional
+    public int purge(Instant before) {
+        return repository.deleteSequencedBefore(before);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sequencer.shutdown();
+        waiters.forEach(waiter -> waiter.future.complete(Collections.emptyList()));
+    }
+
+    private void persist(OutboxEvent.Aggregate aggregate, Long aggregateId, OutboxEvent.Type type,
+                         Map<String, Object> payload) {
+        entityManager.persist(OutboxEvent.builder()
+                .aggregate(aggregate)
+                .aggregateId(aggregateId)
+                .type(type)
+                .payload(toJson(payload))
+                .createdAt(Instant.now())
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestSequencing();
+                }
+            });
+        }
+    }
+
+    /**
+     * Coalesces the signals of many commits into one pending sequencer run.
+     */
+    private void requestSequencing() {
+        if (sequencePending.compareAndSet(false, true)) {
+            try {
+                sequencer.execute(() -> {
+                    sequencePending.set(false);
+                    try {
+                        sequence();
+                    } catch (RuntimeException e) {
+                        log.error("falha ao sequenciar eventos do outbox", e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                sequencePending.set(false);
+            }
+        }
+    }
+
+    private long knownPosition() {
+        if (lastPosition < 0) {
+            lastPosition = repository.findLastPosition();
+        }
+        return lastPosition;
+    }
+
+    /**
+     * Answers every waiter behind the latest position, with one read per distinct offset and limit.
+     */
+    private void answerWaiters() {
+        Map<String, List<OutboxEvent>> reads = new HashMap<>();
+        for (Waiter waiter : waiters) {
+            if (waiter.after < lastPosition && waiters.remove(waiter)) {
+                List<OutboxEvent> events = reads.computeIfAbsent(waiter.after + ":" + waiter.limit,
+                        key -> repository.findAfter(waiter.after, PageRequest.of(0, waiter.limit)));
+                waiter.future.complete(events);
+            }
+        }
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Waiter {
+        final long after;
+        final int limit;
+        final CompletableFuture<List<OutboxEvent>> future = new CompletableFuture<>();
+
+        Waiter(long after, int limit) {
+            this.after = after;
+            this.limit = limit;
+        }
+    }
+}
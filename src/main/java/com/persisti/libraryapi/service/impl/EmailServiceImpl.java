@@ -1,36 +1,81 @@
-//package com.persisti.libraryapi.service.impl;
-//
-//import com.persisti.libraryapi.service.EmailService;
-//import lombok.RequiredArgsConstructor;
-//import org.springframework.beans.factory.annotation.Value;
-//import org.springframework.mail.SimpleMailMessage;
-//import org.springframework.mail.javamail.JavaMailSender;
-//import org.springframework.stereotype.Service;
-//
-//import java.util.List;
-//
-//@Service
-//@RequiredArgsConstructor
-//public class EmailServiceImpl implements EmailService {
-//
-//    @Value("${application.mail.default-remetent}")
-//    private String remetent;
-//
-//    private final JavaMailSender javaMailSender;
-//
-//    @Override
-//    public void sendMails(String message, List<String> mailsList) {
-//
-//        String[] mails = mailsList.toArray(new String[mailsList.size()]);
-//
-//        String mail = "willyagenaro4321@gmail.com";
-//
-//        SimpleMailMessage mailMessage = new SimpleMailMessage();
-//        mailMessage.setFrom(remetent);
-//        mailMessage.setSubject("Livro com empréstimo atrasado");
-//        mailMessage.setText(message);
-//        mailMessage.setTo(mail);
-//
-//        javaMailSender.send(mailMessage);
-//    }
-//}
\ No newline at end of file
+package com.persisti.libraryapi.service.impl;
+
+import com.persisti.libraryapi.service.EmailService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailServiceImpl implements EmailService {
+
+    @Value("${application.mail.default-remetent}")
+    private String remetent;
+
+    @Value("${application.mail.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${application.mail.backoff-ms:1000}")
+    private long backoffMillis;
+
+    private final JavaMailSender javaMailSender;
+
+    /**
+     * Every attempt hands the whole batch to a single {@code send} call, which delivers it over one SMTP
+     * connection. Only the messages the server rejected are retried, with exponential backoff.
+     */
+    @Override
+    public Set<String> sendMails(String message, Collection<String> recipients) {
+        Map<String, SimpleMailMessage> pending = new LinkedHashMap<>();
+        for (String recipient : recipients) {
+            pending.put(recipient, mailMessage(message, recipient));
+        }
+
+        long backoff = backoffMillis;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            try {
+                javaMailSender.send(pending.values().toArray(new SimpleMailMessage[0]));
+                pending.clear();
+            } catch (MailSendException e) {
+                if (!e.getFailedMessages().isEmpty()) {
+                    pending.values().retainAll(e.getFailedMessages().keySet());
+                }
+                log.warn("falha ao enviar {} emails (tentativa {})", pending.size(), attempt, e);
+            } catch (MailException e) {
+                log.warn("falha ao enviar {} emails (tentativa {})", pending.size(), attempt, e);
+            }
+            if (pending.isEmpty() || attempt >= maxAttempts) {
+                break;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff *= 2;
+        }
+        return new HashSet<>(pending.keySet());
+    }
+
+    private SimpleMailMessage mailMessage(String message, String recipient) {
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setFrom(remetent);
+        mailMessage.setSubject("Livro com empréstimo atrasado");
+        mailMessage.setText(message);
+        mailMessage.setTo(recipient);
+        return mailMessage;
+    }
+}
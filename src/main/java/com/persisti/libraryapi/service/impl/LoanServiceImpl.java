@@ -1,60 +1,611 @@
 package com.persisti.libraryapi.service.impl;
 
+import com.persisti.libraryapi.api.dto.LoanBatchItemDTO;
+import com.persisti.libraryapi.api.dto.LoanBatchResultDTO;
 import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.config.CacheConfig;
+import com.persisti.libraryapi.config.MetricsConfig;
 import com.persisti.libraryapi.exception.BusinessException;
+import com.persisti.libraryapi.exception.ConstraintViolations;
 import com.persisti.libraryapi.model.entity.Book;
 import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.entity.LoanHistory;
+import com.persisti.libraryapi.model.entity.OutboxEvent;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.model.repository.LoanHistoryRepository;
 import com.persisti.libraryapi.model.repository.LoanRepository;
+import com.persisti.libraryapi.model.repository.LoanSearchCriteria;
+import com.persisti.libraryapi.model.repository.OffsetPageRequest;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.ChangeFeedService;
 import com.persisti.libraryapi.service.LoanService;
+import com.persisti.libraryapi.service.LoanStatisticsService;
+import com.persisti.libraryapi.service.lock.StripedLock;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
 
+import javax.persistence.EntityManager;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class LoanServiceImpl implements LoanService {
 
+    private static final int BATCH_CHUNK_SIZE = 1000;
+
     private LoanRepository repository;
+    private LoanHistoryRepository historyRepository;
+    private EntityManager entityManager;
+    private BookService bookService;
+    private LoanStatisticsService statistics;
+    private ChangeFeedService changeFeed;
+    private TransactionTemplate transactionTemplate;
+    private StripedLock bookLocks;
+    private int batchLockStripes;
+    private Counter admitted;
+    private Counter alreadyLoaned;
+    private Counter constraintConflicts;
 
-    public LoanServiceImpl(LoanRepository repository) {
+    public LoanServiceImpl(LoanRepository repository, LoanHistoryRepository historyRepository,
+                           EntityManager entityManager, BookService bookService,
+                           LoanStatisticsService statistics, ChangeFeedService changeFeed,
+                           PlatformTransactionManager transactionManager, MeterRegistry registry,
+                           @Value("${application.loans.lock-stripes:64}") int lockStripes,
+                           @Value("${application.loans.batch-lock-stripes:8}") int batchLockStripes) {
         this.repository = repository;
+        this.historyRepository = historyRepository;
+        this.entityManager = entityManager;
+        this.bookService = bookService;
+        this.statistics = statistics;
+        this.changeFeed = changeFeed;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookLocks = new StripedLock(lockStripes);
+        this.batchLockStripes = batchLockStripes;
+        this.admitted = registry.counter(MetricsConfig.LOAN_ADMISSIONS, "outcome", "admitted");
+        this.alreadyLoaned = registry.counter(MetricsConfig.LOAN_ADMISSIONS, "outcome", "already_loaned");
+        this.constraintConflicts = registry.counter(MetricsConfig.LOAN_ADMISSIONS, "outcome", "constraint_conflict");
     }
 
+    /**
+     * Loans on the same book are admitted one at a time through the book's lock stripe. Admission flips the
+     * book's availability flag in the same transaction as the insert, so no scan of the Loan table is
+     * needed; the unique active-book constraint still rejects a concurrent loan from another instance.
+     */
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
     public Loan save(Loan loan) {
-        if(repository.existsByBookAndNotReturned(loan.getBook())){
-            throw new BusinessException("Book already loaned");
+        Long bookId = loan.getBook().getId();
+        Lock lock = bookLocks.get(bookId);
+        lock.lock();
+        try {
+            Loan saved = transactionTemplate.execute(status -> {
+                boolean open = !loan.getReturned();
+                if (open && !bookService.markLoaned(loan.getBook())) {
+                    alreadyLoaned.increment();
+                    throw new BusinessException("Book already loaned");
+                }
+                loan.setActiveBookId(open ? bookId : null);
+                Loan created = saveChecked(loan);
+                statistics.loanCreated(created);
+                changeFeed.record(created, OutboxEvent.Type.CREATED);
+                return created;
+            });
+            admitted.increment();
+            return saved;
+        } finally {
+            lock.unlock();
         }
-        return repository.save(loan);
     }
 
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Cacheable(cacheNames = CacheConfig.LOANS, key = "#id", unless = "#result == null")
     public Optional<Loan> getById(Long id) {
         return repository.findById(id);
     }
 
+    /**
+     * Applies the returned flag of {@code loan}. The caller's instance may be stale, so the transition is
+     * decided on the stored loan, read under the book's lock: a return is a conditional update that only
+     * one of several concurrent returns wins, and only the winner frees the book and records the change.
+     */
     @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.LOANS, key = "#loan.id")
     public Loan update(Loan loan) {
-        return repository.save(loan);
+        Long bookId = loan.getBook().getId();
+        Lock lock = bookLocks.get(bookId);
+        lock.lock();
+        try {
+            return transactionTemplate.execute(status -> {
+                Loan current = repository.findById(loan.getId())
+                        .orElseThrow(() -> new BusinessException("Loan not found"));
+                boolean wasOpen = current.getActiveBookId() != null;
+                boolean open = !loan.getReturned();
+                if (wasOpen && !open) {
+                    if (repository.markReturned(Collections.singleton(current.getId())) == 0) {
+                        return current;
+                    }
+                    // the bulk update bypassed the persistence context
+                    entityManager.detach(current);
+                    current.setReturned(true);
+                    current.setActiveBookId(null);
+                    bookService.markAvailable(current.getBook());
+                    statistics.loanReturned(current);
+                    changeFeed.record(current, OutboxEvent.Type.UPDATED);
+                    return current;
+                }
+                if (!wasOpen && open) {
+                    if (!bookService.markLoaned(current.getBook())) {
+                        alreadyLoaned.increment();
+                        throw new BusinessException("Book already loaned");
+                    }
+                    current.setReturned(false);
+                    current.setActiveBookId(bookId);
+                    Loan reopened = saveChecked(current);
+                    statistics.loanReopened(reopened);
+                    changeFeed.record(reopened, OutboxEvent.Type.UPDATED);
+                    return reopened;
+                }
+                return current;
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admits a batch of loans: the wanted books are flipped to loaned with set-based updates and the loans
+     * inserted in JDBC batches. The books are taken in groups covering a few lock stripes each, one
+     * transaction per group, so a large batch never holds every stripe and single loans on other stripes
+     * go on meanwhile. If another instance wins one of the books of a group, that group is retried loan by
+     * loan so only the conflicting entries fail.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public LoanBatchResultDTO saveAll(List<Loan> loans) {
+        long start = System.currentTimeMillis();
+        LoanBatchItemDTO[] items = new LoanBatchItemDTO[loans.size()];
+        Map<Long, Integer> byBook = new LinkedHashMap<>();
+        for (int i = 0; i < loans.size(); i++) {
+            Loan loan = loans.get(i);
+            if (loan.getBook() == null) {
+                items[i] = item(i, null, null, HttpStatus.BAD_REQUEST, "Book not found for passed isbn");
+            } else if (byBook.putIfAbsent(loan.getBook().getId(), i) != null) {
+                alreadyLoaned.increment();
+                items[i] = item(i, null, loan.getBook().getId(), HttpStatus.BAD_REQUEST, "Book already loaned");
+            }
+        }
+
+        for (List<Long> group : bookLocks.partition(byBook.keySet(), Function.identity(), batchLockStripes)) {
+            List<Lock> locks = bookLocks.getAll(group);
+            locks.forEach(Lock::lock);
+            try {
+                try {
+                    int inserted = transactionTemplate.execute(status -> admitOpen(group, byBook, loans, items));
+                    admitted.increment(inserted);
+                } catch (RuntimeException e) {
+                    if (!(e instanceof OptimisticLockingFailureException)
+                            && !ConstraintViolations.isViolationOf(e, Loan.ACTIVE_BOOK_CONSTRAINT)) {
+                        throw e;
+                    }
+                    for (Long bookId : group) {
+                        int index = byBook.get(bookId);
+                        items[index] = saveOne(index, loans.get(index));
+                    }
+                }
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+        }
+        return result(items, HttpStatus.CREATED, start);
+    }
+
+    /**
+     * Flips the books that are still available to loaned and inserts their loans, reporting the others as
+     * already loaned. Returns how many loans were inserted.
+     */
+    private int admitOpen(List<Long> bookIds, Map<Long, Integer> byBook, List<Loan> loans, LoanBatchItemDTO[] items) {
+        Set<Long> loaned = bookService.markAllLoaned(bookIds);
+        List<Loan> batch = new ArrayList<>(loaned.size());
+        for (Long bookId : bookIds) {
+            int index = byBook.get(bookId);
+            Loan loan = loans.get(index);
+            if (loaned.contains(bookId)) {
+                loan.setReturned(false);
+                loan.setActiveBookId(bookId);
+                entityManager.persist(loan);
+                batch.add(loan);
+            } else {
+                alreadyLoaned.increment();
+                items[index] = item(index, null, bookId, HttpStatus.BAD_REQUEST, "Book already loaned");
+            }
+        }
+        entityManager.flush();
+        batch.forEach(loan -> {
+            statistics.loanCreated(loan);
+            changeFeed.record(loan, OutboxEvent.Type.CREATED);
+            int index = byBook.get(loan.getActiveBookId());
+            items[index] = item(index, loan.getId(), loan.getActiveBookId(), HttpStatus.CREATED, null);
+        });
+        entityManager.flush();
+        entityManager.clear();
+        return batch.size();
+    }
+
+    /**
+     * Returns a batch of loans with one set-based update on Loan and one on Book. Unknown ids fail with
+     * 404 and loans that were already returned are reported as returned, so a retried batch is harmless.
+     * The loans are returned in groups whose books cover a few lock stripes each, one transaction per
+     * group. Which loans are still open is decided under those stripes, in the returning transaction; if
+     * another instance returns one of them meanwhile, that group is retried loan by loan.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.LOANS, allEntries = true)
+    public LoanBatchResultDTO returnAll(List<Long> loanIds) {
+        long start = System.currentTimeMillis();
+        LoanBatchItemDTO[] items = new LoanBatchItemDTO[loanIds.size()];
+        Map<Long, Integer> byLoan = new LinkedHashMap<>();
+        for (int i = 0; i < loanIds.size(); i++) {
+            Long id = loanIds.get(i);
+            if (id == null) {
+                items[i] = item(i, null, null, HttpStatus.BAD_REQUEST, "Loan id cant be null");
+            } else if (byLoan.putIfAbsent(id, i) != null) {
+                items[i] = item(i, id, null, HttpStatus.BAD_REQUEST, "Loan repeated in batch");
+            }
+        }
+
+        Map<Long, Loan> found = new HashMap<>();
+        for (List<Long> ids : partition(new ArrayList<>(byLoan.keySet()))) {
+            repository.findAllById(ids).forEach(loan -> found.put(loan.getId(), loan));
+        }
+        Map<Long, Long> bookByLoan = new LinkedHashMap<>();
+        byLoan.forEach((id, index) -> {
+            Loan loan = found.get(id);
+            if (loan == null) {
+                items[index] = item(index, id, null, HttpStatus.NOT_FOUND, "Loan not found");
+            } else {
+                bookByLoan.put(id, loan.getBook().getId());
+            }
+        });
+
+        for (List<Long> group : bookLocks.partition(bookByLoan.keySet(), bookByLoan::get, batchLockStripes)) {
+            Map<Long, Long> groupBooks = new LinkedHashMap<>();
+            group.forEach(id -> groupBooks.put(id, bookByLoan.get(id)));
+            List<Lock> locks = bookLocks.getAll(groupBooks.values());
+            locks.forEach(Lock::lock);
+            try {
+                try {
+                    Set<Long> returned = transactionTemplate.execute(status -> returnOpen(groupBooks, found));
+                    groupBooks.forEach((id, bookId) -> {
+                        int index = byLoan.get(id);
+                        items[index] = item(index, id, bookId, HttpStatus.OK,
+                                returned.contains(id) ? null : "Loan already returned");
+                    });
+                } catch (OptimisticLockingFailureException e) {
+                    group.forEach(id -> items[byLoan.get(id)] = returnOne(byLoan.get(id), found.get(id)));
+                }
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+        }
+        return result(items, HttpStatus.OK, start);
+    }
+
+    /**
+     * Returns the loans that are still open according to the rows read now, and frees, counts and records
+     * only those. Fails, rolling everything back, when the update does not change every one of them.
+     */
+    private Set<Long> returnOpen(Map<Long, Long> bookByLoan, Map<Long, Loan> found) {
+        List<Long> open = new ArrayList<>();
+        for (List<Long> ids : partition(new ArrayList<>(bookByLoan.keySet()))) {
+            open.addAll(repository.findOpenIds(ids));
+        }
+        int changed = 0;
+        for (List<Long> ids : partition(open)) {
+            changed += repository.markReturned(ids);
+        }
+        if (changed != open.size()) {
+            throw new OptimisticLockingFailureException("Loans returned concurrently");
+        }
+        bookService.markAllAvailable(open.stream().map(bookByLoan::get).collect(Collectors.toList()));
+        open.forEach(id -> {
+            // the loans read before the locks may be managed by the caller's session, so the change goes on a copy
+            Loan loan = found.get(id).toBuilder().returned(true).activeBookId(null).build();
+            statistics.loanReturned(loan);
+            changeFeed.record(loan, OutboxEvent.Type.UPDATED);
+        });
+        return new HashSet<>(open);
     }
 
     @Override
-    public Page<Loan> find(LoanFilterDTO filterDTO, Pageable pageable) {
-        return repository.findByBookIsbnOrCustomer(filterDTO.getIsbn(), filterDTO.getCustomer(), pageable);
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Page<LoanSummary> find(LoanFilterDTO filterDTO, Pageable pageable) {
+        Optional<LoanSearchCriteria> criteria = criteria(filterDTO);
+        if (!criteria.isPresent()) {
+            return Page.empty(pageable);
+        }
+        Page<LoanSummary> active = repository.search(criteria.get(), pageable);
+        if (!includeHistory(filterDTO)) {
+            return active;
+        }
+        return concat(active, pageable, history -> historyRepository.search(criteria.get(), history));
     }
 
     @Override
-    public Page<Loan> getLoansByBook(Book book, Pageable pageable) {
-        return repository.findByBook(book, pageable);
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Slice<LoanSummary> findAfter(LoanFilterDTO filterDTO, Long lastId, int size) {
+        Pageable pageable = PageRequest.of(0, size, Sort.by("id"));
+        Optional<LoanSearchCriteria> criteria = criteria(filterDTO);
+        if (!criteria.isPresent()) {
+            return new SliceImpl<>(Collections.emptyList(), pageable, false);
+        }
+        Slice<LoanSummary> active = repository.searchAfter(criteria.get(), lastId, pageable);
+        if (!includeHistory(filterDTO)) {
+            return active;
+        }
+        return merge(active, historyRepository.searchAfter(criteria.get(), lastId, pageable), pageable);
     }
 
     @Override
-    public List<Loan> getAllLateLoans() {
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Page<LoanSummary> getLoansByBook(Book book, boolean includeHistory, Pageable pageable) {
+        Page<LoanSummary> active = repository.findSummariesByBook(book, pageable);
+        if (!includeHistory) {
+            return active;
+        }
+        return concat(active, pageable, history -> historyRepository.findSummariesByBook(book, history));
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public Slice<LoanSummary> getLoansByBookAfter(Book book, boolean includeHistory, Long lastId, int size) {
+        Pageable pageable = PageRequest.of(0, size, Sort.by("id"));
+        Slice<LoanSummary> active = repository.findNextSummariesByBook(book, lastId, pageable);
+        if (!includeHistory) {
+            return active;
+        }
+        return merge(active, historyRepository.findNextSummariesByBook(book, lastId, pageable), pageable);
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public Slice<Loan> getLateLoans(Long lastId, int size) {
         final Integer loanDays = 4;
         LocalDate threeDaysAgo = LocalDate.now().minusDays(loanDays);
-        return repository.findByLoanDateLessThanAndNotReturned(threeDaysAgo);
+        return repository.findNextLateLoansNotNotified(lastId, threeDaysAgo, PageRequest.of(0, size, Sort.by("id")));
+    }
+
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.LOANS, allEntries = true)
+    public void markLateNoticeSent(Collection<Long> loanIds) {
+        repository.markLateNoticeSent(loanIds, LocalDate.now());
+    }
+
+    /**
+     * Moves returned loans taken before the cutoff into the history table, one chunk per transaction so
+     * the Loan table is never locked for the whole run. The loans cache is cleared as archived ids no
+     * longer resolve through {@link #getById}.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @CacheEvict(cacheNames = CacheConfig.LOANS, allEntries = true)
+    public int archiveReturnedBefore(LocalDate cutoff, int chunkSize) {
+        Pageable chunk = PageRequest.of(0, chunkSize, Sort.by("id"));
+        int archived = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> {
+                List<Loan> loans = repository.findArchivable(cutoff, chunk);
+                if (loans.isEmpty()) {
+                    return 0;
+                }
+                LocalDate today = LocalDate.now();
+                loans.forEach(loan -> entityManager.persist(LoanHistory.of(loan, today)));
+                entityManager.flush();
+                repository.deleteByIds(loans.stream().map(Loan::getId).collect(Collectors.toList()));
+                return loans.size();
+            });
+            archived += moved;
+        } while (moved == chunkSize);
+        return archived;
+    }
+
+    /**
+     * Turns the filter into search criteria, resolving the isbn to a book id through the isbn cache. The
+     * isbn and the customer are alternatives: an unknown isbn leaves only the customer to match, and the
+     * result is empty when no customer was given either.
+     */
+    private Optional<LoanSearchCriteria> criteria(LoanFilterDTO filterDTO) {
+        String customer = StringUtils.hasText(filterDTO.getCustomer()) ? filterDTO.getCustomer() : null;
+        Long bookId = null;
+        if (StringUtils.hasText(filterDTO.getIsbn())) {
+            Optional<Book> book = bookService.getBookByIsbn(filterDTO.getIsbn());
+            if (!book.isPresent() && customer == null) {
+                return Optional.empty();
+            }
+            bookId = book.map(Book::getId).orElse(null);
+        }
+        return Optional.of(LoanSearchCriteria.builder()
+                .bookId(bookId)
+                .customer(customer)
+                .loanDateFrom(filterDTO.getLoanDateFrom())
+                .loanDateTo(filterDTO.getLoanDateTo())
+                .returned(filterDTO.getReturned())
+                .build());
+    }
+
+    /**
+     * Streams the loan projections, then the archived ones, in one read-only transaction; projections are
+     * not managed, so nothing accumulates in the persistence context.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    @Transactional(readOnly = true)
+    public void exportLoans(boolean includeHistory, Consumer<LoanSummary> sink) {
+        try (Stream<LoanSummary> loans = repository.streamSummaries()) {
+            loans.forEach(sink);
+        }
+        if (includeHistory) {
+            try (Stream<LoanSummary> loans = historyRepository.streamSummaries()) {
+                loans.forEach(sink);
+            }
+        }
+    }
+
+    private LoanBatchItemDTO saveOne(int index, Loan loan) {
+        loan.setId(null);
+        loan.setActiveBookId(null);
+        try {
+            Loan saved = save(loan);
+            return item(index, saved.getId(), saved.getBook().getId(), HttpStatus.CREATED, null);
+        } catch (BusinessException e) {
+            return item(index, null, loan.getBook().getId(), HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private LoanBatchItemDTO returnOne(int index, Loan loan) {
+        try {
+            Loan returned = update(loan.toBuilder().returned(true).build());
+            return item(index, returned.getId(), returned.getBook().getId(), HttpStatus.OK, null);
+        } catch (BusinessException e) {
+            return item(index, loan.getId(), loan.getBook().getId(), HttpStatus.NOT_FOUND, e.getMessage());
+        }
+    }
+
+    private static LoanBatchItemDTO item(int index, Long id, Long bookId, HttpStatus status, String message) {
+        return LoanBatchItemDTO.builder()
+                .index(index)
+                .id(id)
+                .bookId(bookId)
+                .status(status.value())
+                .message(message)
+                .build();
+    }
+
+    private static LoanBatchResultDTO result(LoanBatchItemDTO[] items, HttpStatus success, long start) {
+        long succeeded = 0;
+        for (LoanBatchItemDTO item : items) {
+            if (item.getStatus() == success.value()) {
+                succeeded++;
+            }
+        }
+        return LoanBatchResultDTO.builder()
+                .received(items.length)
+                .succeeded(succeeded)
+                .failed(items.length - succeeded)
+                .elapsedMillis(System.currentTimeMillis() - start)
+                .items(Arrays.asList(items))
+                .build();
+    }
+
+    private static List<List<Long>> partition(List<Long> ids) {
+        List<List<Long>> partitions = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += BATCH_CHUNK_SIZE) {
+            partitions.add(ids.subList(from, Math.min(from + BATCH_CHUNK_SIZE, ids.size())));
+        }
+        return partitions;
+    }
+
+    private static boolean includeHistory(LoanFilterDTO filterDTO) {
+        return !Boolean.FALSE.equals(filterDTO.getIncludeHistory());
+    }
+
+    /**
+     * Pages over the active loans followed by the archived ones: the history query only runs from the
+     * offset where the active rows run out, and with a single row just for its count otherwise.
+     */
+    private static Page<LoanSummary> concat(Page<LoanSummary> active, Pageable pageable,
+                                            Function<Pageable, Page<LoanSummary>> history) {
+        if (pageable.isUnpaged()) {
+            List<LoanSummary> content = new ArrayList<>(active.getContent());
+            content.addAll(history.apply(pageable).getContent());
+            return new PageImpl<>(content, pageable, content.size());
+        }
+        List<LoanSummary> content = new ArrayList<>(active.getContent());
+        int missing = pageable.getPageSize() - content.size();
+        long offset = Math.max(0, pageable.getOffset() - active.getTotalElements());
+        Page<LoanSummary> archived = history.apply(new OffsetPageRequest(offset, Math.max(missing, 1), pageable.getSort()));
+        if (missing > 0) {
+            content.addAll(archived.getContent());
+        }
+        return new PageImpl<>(content, pageable, active.getTotalElements() + archived.getTotalElements());
+    }
+
+    /**
+     * Merges two id-ordered slices read after the same cursor into one slice of the requested size.
+     */
+    private static Slice<LoanSummary> merge(Slice<LoanSummary> active, Slice<LoanSummary> archived, Pageable pageable) {
+        List<LoanSummary> left = active.getContent();
+        List<LoanSummary> right = archived.getContent();
+        int size = pageable.getPageSize();
+        List<LoanSummary> content = new ArrayList<>(size);
+        int i = 0;
+        int j = 0;
+        while (content.size() < size && (i < left.size() || j < right.size())) {
+            if (j == right.size() || (i < left.size() && left.get(i).getId() < right.get(j).getId())) {
+                content.add(left.get(i++));
+            } else {
+                content.add(right.get(j++));
+            }
+        }
+        boolean hasNext = i < left.size() || j < right.size() || active.hasNext() || archived.hasNext();
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    private Loan saveChecked(Loan loan) {
+        try {
+            return repository.saveAndFlush(loan);
+        } catch (DataIntegrityViolationException e) {
+            if (ConstraintViolations.isViolationOf(e, Loan.ACTIVE_BOOK_CONSTRAINT)) {
+                constraintConflicts.increment();
+                throw new BusinessException("Book already loaned");
+            }
+            throw e;
+        }
     }
 }
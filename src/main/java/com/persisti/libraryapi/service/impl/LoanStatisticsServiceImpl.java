@@ -0,0 +1,297 @@
+package com.persisti.libraryapi.service.impl;
+
+import com.persisti.libraryapi.config.MetricsConfig;
+import com.persisti.libraryapi.model.entity.BookLoanStats;
+import com.persisti.libraryapi.model.entity.CustomerLoanStats;
+import com.persisti.libraryapi.model.entity.DailyLoanStats;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.model.projection.LoanStatsOverview;
+import com.persisti.libraryapi.model.repository.BookLoanStatsRepository;
+import com.persisti.libraryapi.model.repository.CustomerLoanStatsRepository;
+import com.persisti.libraryapi.model.repository.DailyLoanStatsRepository;
+import com.persisti.libraryapi.service.LoanService;
+import com.persisti.libraryapi.service.LoanStatisticsService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Loan counts per book, per customer and per loan day. Loan writes only bump in-memory deltas once their
+ * transaction committed; a scheduled flush takes the accumulated deltas out and adds them to the summary
+ * tables, so the tables see one update per touched key per flush instead of one per loan, and the maps
+ * only hold the keys touched since the last flush. Reads are primary key
+ * lookups on those tables and lag live writes by at most one flush interval.
+ */
+@Service
+@Lazy(false)
+@Slf4j
+public class LoanStatisticsServiceImpl implements LoanStatisticsService {
+
+    public static final String RECOMPUTE_MISMATCHES = "library.stats.recompute.mismatches";
+
+    /**
+     * Open loans taken more than this many days ago are late, as in {@link LoanService#getLateLoans}.
+     */
+    private static final int LOAN_DAYS = 4;
+
+    private final ConcurrentHashMap<Long, Delta> books = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Delta> customers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<LocalDate, Delta> days = new ConcurrentHashMap<>();
+
+    private final BookLoanStatsRepository bookStats;
+    private final CustomerLoanStatsRepository customerStats;
+    private final DailyLoanStatsRepository dailyStats;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter mismatches;
+
+    private volatile LoanStatsOverview overview;
+
+    public LoanStatisticsServiceImpl(BookLoanStatsRepository bookStats, CustomerLoanStatsRepository customerStats,
+                                     DailyLoanStatsRepository dailyStats, EntityManager entityManager,
+                                     PlatformTransactionManager transactionManager, MeterRegistry registry) {
+        this.bookStats = bookStats;
+        this.customerStats = customerStats;
+        this.dailyStats = dailyStats;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.mismatches = registry.counter(RECOMPUTE_MISMATCHES);
+    }
+
+    @Override
+    public void loanCreated(Loan loan) {
+        record(loan, 1, loan.getReturned() ? 0 : 1);
+    }
+
+    @Override
+    public void loanReturned(Loan loan) {
+        record(loan, 0, -1);
+    }
+
+    @Override
+    public void loanReopened(Loan loan) {
+        record(loan, 0, 1);
+    }
+
+    /**
+     * Adds the deltas accumulated since the last flush to the summary tables and refreshes the overview.
+     * Deltas of a failed flush are put back and retried on the next one.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${application.stats.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        Map<Long, long[]> bookDeltas = drain(books);
+        Map<String, long[]> customerDeltas = drain(customers);
+        Map<LocalDate, long[]> dayDeltas = drain(days);
+        if (!bookDeltas.isEmpty() || !customerDeltas.isEmpty() || !dayDeltas.isEmpty()) {
+            try {
+                transactionTemplate.execute(status -> {
+                    bookDeltas.forEach((id, delta) -> {
+                        if (bookStats.addTo(id, delta[0], delta[1]) == 0) {
+                            entityManager.persist(new BookLoanStats(id, delta[0], delta[1]));
+                        }
+                    });
+                    customerDeltas.forEach((customer, delta) -> {
+                        if (customerStats.addTo(customer, delta[0], delta[1]) == 0) {
+                            entityManager.persist(new CustomerLoanStats(customer, delta[0], delta[1]));
+                        }
+                    });
+                    dayDeltas.forEach((day, delta) -> {
+                        if (dailyStats.addTo(day, delta[0], delta[1]) == 0) {
+                            entityManager.persist(new DailyLoanStats(day, delta[0], delta[1]));
+                        }
+                    });
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("falha ao gravar estatisticas de emprestimos, nova tentativa no proximo ciclo", e);
+                restore(books, bookDeltas);
+                restore(customers, customerDeltas);
+                restore(days, dayDeltas);
+                return;
+            }
+        }
+        overview = dailyStats.findOverview(LocalDate.now().minusDays(LOAN_DAYS));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Rebuilds the summary tables from the Loan and LoanHistory tables and counts the rows that had
+     * drifted. Loans committed while it runs can be counted twice, so it is meant for quiet hours; a
+     * second run converges.
+     */
+    @Override
+    @Timed(MetricsConfig.SERVICE_TIMER)
+    public synchronized int recompute() {
+        flush();
+        int drifted = transactionTemplate.execute(status ->
+                replace(bookStats.findAll(), sum(bookStats.countLoans(), bookStats.countArchivedLoans(),
+                        BookLoanStats::getBookId, BookLoanStats::getTotalLoans, BookLoanStats::getActiveLoans,
+                        BookLoanStats::new), BookLoanStats::getBookId, bookStats::deleteAllInBatch)
+                + replace(customerStats.findAll(), sum(customerStats.countLoans(), customerStats.countArchivedLoans(),
+                        CustomerLoanStats::getCustomer, CustomerLoanStats::getTotalLoans,
+                        CustomerLoanStats::getActiveLoans, CustomerLoanStats::new),
+                        CustomerLoanStats::getCustomer, customerStats::deleteAllInBatch)
+                + replace(dailyStats.findAll(), sum(dailyStats.countLoans(), dailyStats.countArchivedLoans(),
+                        DailyLoanStats::getDay, DailyLoanStats::getTotalLoans, DailyLoanStats::getActiveLoans,
+                        DailyLoanStats::new), DailyLoanStats::getDay, dailyStats::deleteAllInBatch));
+        mismatches.increment(drifted);
+        overview = dailyStats.findOverview(LocalDate.now().minusDays(LOAN_DAYS));
+        return drifted;
+    }
+
+    @Override
+    public LoanStatsOverview getOverview() {
+        LoanStatsOverview current = overview;
+        if (current == null) {
+            current = dailyStats.findOverview(LocalDate.now().minusDays(LOAN_DAYS));
+            overview = current;
+        }
+        return current;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookLoanStats getBookStats(Long bookId) {
+        return bookStats.findById(bookId).orElseGet(() -> new BookLoanStats(bookId, 0, 0));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CustomerLoanStats getCustomerStats(String customer) {
+        return customerStats.findById(customer).orElseGet(() -> new CustomerLoanStats(customer, 0, 0));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DailyLoanStats> getDailyStats(LocalDate from, LocalDate to) {
+        return dailyStats.findByDayBetweenOrderByDay(from, to);
+    }
+
+    private void record(Loan loan, long total, long active) {
+        Long bookId = loan.getBook() == null ? null : loan.getBook().getId();
+        String customer = loan.getCustomer();
+        LocalDate day = loan.getLoanDate();
+        afterCommit(() -> {
+            if (bookId != null) {
+                add(books, bookId, total, active);
+            }
+            if (customer != null) {
+                add(customers, customer, total, active);
+            }
+            if (day != null) {
+                add(days, day, total, active);
+            }
+        });
+    }
+
+    /**
+     * Deltas are only touched inside {@code compute} and {@code remove}, which lock the key, so a drain
+     * either takes an increment along with the entry or the increment starts a new entry.
+     */
+    private static <K> void add(ConcurrentHashMap<K, Delta> deltas, K key, long total, long active) {
+        deltas.compute(key, (k, delta) -> {
+            Delta current = delta == null ? new Delta() : delta;
+            current.total += total;
+            current.active += active;
+            return current;
+        });
+    }
+
+    /**
+     * Takes the pending deltas out of the map, removing their entries.
+     */
+    private static <K> Map<K, long[]> drain(ConcurrentHashMap<K, Delta> deltas) {
+        Map<K, long[]> drained = new HashMap<>();
+        for (K key : deltas.keySet()) {
+            Delta delta = deltas.remove(key);
+            if (delta != null && (delta.total != 0 || delta.active != 0)) {
+                drained.put(key, new long[]{delta.total, delta.active});
+            }
+        }
+        return drained;
+    }
+
+    private static <K> void restore(ConcurrentHashMap<K, Delta> deltas, Map<K, long[]> drained) {
+        drained.forEach((key, delta) -> add(deltas, key, delta[0], delta[1]));
+    }
+
+    private static <K, T> Map<K, T> sum(List<T> active, List<T> archived, Function<T, K> key,
+                                       Function<T, Long> total, Function<T, Long> open, Factory<K, T> factory) {
+        Map<K, T> sums = new HashMap<>();
+        for (List<T> rows : List.of(active, archived)) {
+            for (T row : rows) {
+                sums.merge(key.apply(row), row, (left, right) -> factory.create(key.apply(left),
+                        total.apply(left) + total.apply(right), open.apply(left) + open.apply(right)));
+            }
+        }
+        return sums;
+    }
+
+    /**
+     * Swaps the table contents for the recomputed rows and returns how many keys differed.
+     */
+    private <K, T> int replace(List<T> current, Map<K, T> expected, Function<T, K> key, Runnable deleteAll) {
+        int drifted = 0;
+        Map<K, T> remaining = new HashMap<>(expected);
+        for (T row : current) {
+            if (!Objects.equals(row, remaining.remove(key.apply(row)))) {
+                drifted++;
+            }
+        }
+        drifted += remaining.size();
+        if (drifted > 0) {
+            entityManager.clear();
+            deleteAll.run();
+            expected.values().forEach(entityManager::persist);
+            entityManager.flush();
+            entityManager.clear();
+        }
+        return drifted;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private interface Factory<K, T> {
+        T create(K key, long total, long active);
+    }
+
+    private static final class Delta {
+        long total;
+        long active;
+    }
+}
@@ -0,0 +1,81 @@
+package com.persisti.libraryapi.service.lock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Fixed set of locks selected by key hash, so operations on the same key are serialized while
+ * operations on different keys rarely contend.
+ */
+public class StripedLock {
+
+    private final Lock[] stripes;
+
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Lock get(Object key) {
+        return stripes[index(key)];
+    }
+
+    /**
+     * The distinct stripes of the keys in stripe order. Callers holding several stripes must take them in
+     * this order, so two of them never wait on each other.
+     */
+    public List<Lock> getAll(Collection<?> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(index(key));
+        }
+        List<Lock> locks = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            locks.add(stripes[index]);
+        }
+        return locks;
+    }
+
+    /**
+     * Splits the items into groups, in stripe order, whose keys fall on at most {@code maxStripes} stripes,
+     * so a caller working through many keys holds only a few stripes at a time.
+     */
+    public <T> List<List<T>> partition(Collection<T> items, Function<? super T, ?> key, int maxStripes) {
+        TreeMap<Integer, List<T>> byStripe = new TreeMap<>();
+        for (T item : items) {
+            byStripe.computeIfAbsent(index(key.apply(item)), index -> new ArrayList<>()).add(item);
+        }
+        List<List<T>> groups = new ArrayList<>();
+        List<T> group = new ArrayList<>();
+        int stripesInGroup = 0;
+        for (Map.Entry<Integer, List<T>> stripe : byStripe.entrySet()) {
+            if (stripesInGroup == maxStripes) {
+                groups.add(group);
+                group = new ArrayList<>();
+                stripesInGroup = 0;
+            }
+            group.addAll(stripe.getValue());
+            stripesInGroup++;
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    private int index(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (stripes.length - 1);
+    }
+}
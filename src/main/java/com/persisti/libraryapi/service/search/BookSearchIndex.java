@@ -0,0 +1,486 @@
+package com.persisti.libraryapi.service.search;
+
+import com.persisti.libraryapi.model.entity.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over book title, author and isbn. Every field is case folded and split into
+ * trigrams, so a CONTAINING query only verifies the books sharing all of its trigrams instead of scanning
+ * the whole table. The index is maintained by BookService and rebuilt from the database on startup;
+ * until the first rebuild completes {@link #supports} is false and searches use the JPA path.
+ */
+@Component
+public class BookSearchIndex {
+
+    public static final String RELEVANCE = "relevance";
+
+    private static final int GRAM = 3;
+
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final String epoch = UUID.randomUUID().toString();
+
+    private Segment live = new Segment();
+    private Segment building;
+    private Set<Long> touchedWhileBuilding;
+    private Map<Long, Boolean> availabilityWhileBuilding;
+    private volatile boolean ready;
+    private volatile long changes;
+
+    public BookSearchIndex(@Value("${application.search.index.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Changes whenever the live documents change. It is unique to this instance, whose index only follows
+     * its own writes, so two instances never share a generation.
+     */
+    public String generation() {
+        return epoch + ":" + changes;
+    }
+
+    public boolean supports(Book filter, Pageable pageable) {
+        if (!enabled || !ready || filter.getId() != null) {
+            return false;
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!order.getProperty().equals("id") && !order.getProperty().equals(RELEVANCE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void index(Book book) {
+        if (!enabled) {
+            return;
+        }
+        Document document = new Document(book);
+        lock.writeLock().lock();
+        try {
+            live.put(document);
+            changes++;
+            if (building != null) {
+                building.put(document);
+                touchedWhileBuilding.add(document.id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            live.remove(id);
+            changes++;
+            if (building != null) {
+                building.remove(id);
+                touchedWhileBuilding.add(id);
+                availabilityWhileBuilding.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates only the availability of an indexed book, so loan admission and return do not re-tokenize it.
+     * During a rebuild, a book whose chunk has not been added yet keeps the new availability aside until
+     * the chunk brings its document, which may have been read before the change.
+     */
+    public void setAvailable(Long id, boolean available) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            live.setAvailable(id, available);
+            changes++;
+            if (building != null && !building.setAvailable(id, available)) {
+                availabilityWhileBuilding.put(id, available);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            building = new Segment();
+            touchedWhileBuilding = new HashSet<>();
+            availabilityWhileBuilding = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a chunk read from the database to the segment being rebuilt. Books changed through
+     * {@link #index}/{@link #remove} since the rebuild started are skipped, as the chunk may be older, and
+     * availability changes made meanwhile through {@link #setAvailable} are applied over the chunk's.
+     */
+    public void addToRebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                if (!touchedWhileBuilding.contains(book.getId())) {
+                    Document document = new Document(book);
+                    Boolean available = availabilityWhileBuilding.remove(book.getId());
+                    if (available != null) {
+                        document.available = available;
+                    }
+                    building.put(document);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            live = building;
+            changes++;
+            building = null;
+            touchedWhileBuilding = null;
+            availabilityWhileBuilding = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abortRebuild() {
+        lock.writeLock().lock();
+        try {
+            building = null;
+            touchedWhileBuilding = null;
+            availabilityWhileBuilding = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the requested page. Ordering follows the {@code id} or {@code relevance} sort of
+     * the pageable, defaulting to id ascending. Listings without trigram criteria, the unfiltered and
+     * available-only ones above all, are sliced from the id-ordered documents without sorting them.
+     */
+    public Page<Long> search(Book filter, Pageable pageable) {
+        List<Criterion> criteria = new ArrayList<>();
+        addCriterion(criteria, Field.TITLE, filter.getTitle());
+        addCriterion(criteria, Field.AUTHOR, filter.getAuthor());
+        addCriterion(criteria, Field.ISBN, filter.getIsbn());
+        Boolean available = filter.getAvailable();
+        Sort.Order order = pageable.getSort().iterator().hasNext() ? pageable.getSort().iterator().next() : null;
+        boolean byRelevance = order != null && order.getProperty().equals(RELEVANCE);
+
+        List<Document> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates = live.candidates(criteria);
+            if (candidates == null && (!byRelevance || criteria.isEmpty())) {
+                // without criteria every relevance score is equal, which leaves the id order
+                return live.page(criteria, available, pageable, !byRelevance && order != null && order.isDescending());
+            }
+            if (candidates == null) {
+                for (Document document : live.documents.values()) {
+                    if (document.matches(criteria, available)) {
+                        matches.add(document);
+                    }
+                }
+            } else {
+                for (Long id : candidates) {
+                    Document document = live.documents.get(id);
+                    if (document.matches(criteria, available)) {
+                        matches.add(document);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(comparator(pageable.getSort(), criteria));
+
+        List<Long> ids;
+        if (pageable.isUnpaged()) {
+            ids = new ArrayList<>(matches.size());
+            matches.forEach(document -> ids.add(document.id));
+        } else {
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(from + pageable.getPageSize(), matches.size());
+            ids = new ArrayList<>(to - from);
+            for (Document document : matches.subList(from, to)) {
+                ids.add(document.id);
+            }
+        }
+        return new PageImpl<>(ids, pageable, matches.size());
+    }
+
+    private static void addCriterion(List<Criterion> criteria, Field field, String value) {
+        if (value != null) {
+            criteria.add(new Criterion(field, fold(value)));
+        }
+    }
+
+    private static Comparator<Document> comparator(Sort sort, List<Criterion> criteria) {
+        Comparator<Document> byId = Comparator.comparing(document -> document.id);
+        Sort.Order order = sort.iterator().hasNext() ? sort.iterator().next() : null;
+        if (order == null) {
+            return byId;
+        }
+        if (order.getProperty().equals(RELEVANCE)) {
+            Map<Long, Integer> scores = new HashMap<>();
+            Comparator<Document> byScore = Comparator.comparing(
+                    document -> scores.computeIfAbsent(document.id, id -> document.score(criteria)));
+            return byScore.reversed().thenComparing(byId);
+        }
+        return order.isDescending() ? byId.reversed() : byId;
+    }
+
+    private static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> grams(String value) {
+        if (value.length() < GRAM) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private enum Field {
+        TITLE('t'), AUTHOR('a'), ISBN('i');
+
+        private final char prefix;
+
+        Field(char prefix) {
+            this.prefix = prefix;
+        }
+
+        String key(String gram) {
+            return prefix + gram;
+        }
+    }
+
+    private static class Criterion {
+        private final Field field;
+        private final String value;
+
+        Criterion(Field field, String value) {
+            this.field = field;
+            this.value = value;
+        }
+    }
+
+    private static class Document {
+        private final Long id;
+        private final String title;
+        private final String author;
+        private final String isbn;
+        private boolean available;
+
+        Document(Book book) {
+            this.id = book.getId();
+            this.title = book.getTitle() == null ? "" : fold(book.getTitle());
+            this.author = book.getAuthor() == null ? "" : fold(book.getAuthor());
+            this.isbn = book.getIsbn() == null ? "" : fold(book.getIsbn());
+            this.available = !Boolean.FALSE.equals(book.getAvailable());
+        }
+
+        String value(Field field) {
+            switch (field) {
+                case TITLE:
+                    return title;
+                case AUTHOR:
+                    return author;
+                default:
+                    return isbn;
+            }
+        }
+
+        boolean matches(List<Criterion> criteria, Boolean available) {
+            if (available != null && available != this.available) {
+                return false;
+            }
+            for (Criterion criterion : criteria) {
+                if (!value(criterion.field).contains(criterion.value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Exact field match scores 3, a match at the start of a word 2 and any other substring match 1.
+         */
+        int score(List<Criterion> criteria) {
+            int score = 0;
+            for (Criterion criterion : criteria) {
+                String value = value(criterion.field);
+                if (value.equals(criterion.value)) {
+                    score += 3;
+                } else {
+                    int at = value.indexOf(criterion.value);
+                    score += at == 0 || (at > 0 && !Character.isLetterOrDigit(value.charAt(at - 1))) ? 2 : 1;
+                }
+            }
+            return score;
+        }
+    }
+
+    private static class Segment {
+        private final TreeMap<Long, Document> documents = new TreeMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private int availableCount;
+
+        void put(Document document) {
+            remove(document.id);
+            documents.put(document.id, document);
+            if (document.available) {
+                availableCount++;
+            }
+            for (Field field : Field.values()) {
+                for (String gram : grams(document.value(field))) {
+                    postings.computeIfAbsent(field.key(gram), key -> new HashSet<>()).add(document.id);
+                }
+            }
+        }
+
+        boolean setAvailable(Long id, boolean available) {
+            Document document = documents.get(id);
+            if (document == null) {
+                return false;
+            }
+            if (document.available != available) {
+                availableCount += available ? 1 : -1;
+                document.available = available;
+            }
+            return true;
+        }
+
+        void remove(Long id) {
+            Document document = documents.remove(id);
+            if (document == null) {
+                return;
+            }
+            if (document.available) {
+                availableCount--;
+            }
+            for (Field field : Field.values()) {
+                for (String gram : grams(document.value(field))) {
+                    String key = field.key(gram);
+                    Set<Long> ids = postings.get(key);
+                    if (ids != null) {
+                        ids.remove(id);
+                        if (ids.isEmpty()) {
+                            postings.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Walks the documents in id order up to the end of the page. The total is known from the counters
+         * when only availability filters; other criteria are checked on every document, still without a sort.
+         */
+        Page<Long> page(List<Criterion> criteria, Boolean available, Pageable pageable, boolean descending) {
+            Collection<Document> ordered = descending ? documents.descendingMap().values() : documents.values();
+            long offset = pageable.isUnpaged() ? 0 : pageable.getOffset();
+            int size = pageable.isUnpaged() ? Integer.MAX_VALUE : pageable.getPageSize();
+            boolean counted = criteria.isEmpty();
+            List<Long> ids = new ArrayList<>(Math.min(size, documents.size()));
+            long matched = 0;
+            for (Document document : ordered) {
+                if (counted && ids.size() == size) {
+                    break;
+                }
+                if (document.matches(criteria, available)) {
+                    if (matched >= offset && ids.size() < size) {
+                        ids.add(document.id);
+                    }
+                    matched++;
+                }
+            }
+            return new PageImpl<>(ids, pageable, counted ? count(available) : matched);
+        }
+
+        private long count(Boolean available) {
+            if (available == null) {
+                return documents.size();
+            }
+            return available ? availableCount : documents.size() - availableCount;
+        }
+
+        /**
+         * Intersects the postings of every trigram in the criteria, smallest first. Returns null when no
+         * criterion is long enough to have trigrams, meaning every document is a candidate.
+         */
+        Collection<Long> candidates(List<Criterion> criteria) {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (Criterion criterion : criteria) {
+                for (String gram : grams(criterion.value)) {
+                    Set<Long> ids = postings.get(criterion.field.key(gram));
+                    if (ids == null) {
+                        return Collections.emptyList();
+                    }
+                    lists.add(ids);
+                }
+            }
+            if (lists.isEmpty()) {
+                return null;
+            }
+            lists.sort(Comparator.comparingInt(Set::size));
+            Set<Long> result = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+                result.retainAll(lists.get(i));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.persisti.libraryapi.service.search;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookSearchIndexLoader {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final BookRepository repository;
+    private final BookSearchIndex index;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (index.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "book-search-index-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Reads the whole catalog in id order and atomically replaces the index contents.
+     */
+    public synchronized void rebuild() {
+        log.info("reconstruindo indice de busca de livros");
+        long start = System.currentTimeMillis();
+        index.beginRebuild();
+        try {
+            PageRequest chunk = PageRequest.of(0, CHUNK_SIZE, Sort.by("id"));
+            Long lastId = 0L;
+            Slice<Book> slice;
+            do {
+                slice = repository.findByIdGreaterThan(lastId, chunk);
+                List<Book> books = slice.getContent();
+                if (!books.isEmpty()) {
+                    index.addToRebuild(books);
+                    lastId = books.get(books.size() - 1).getId();
+                }
+            } while (slice.hasNext());
+            index.finishRebuild();
+        } catch (RuntimeException e) {
+            index.abortRebuild();
+            log.error("falha ao reconstruir indice de busca de livros", e);
+            return;
+        }
+        log.info("indice de busca de livros reconstruido com {} livros em {} ms",
+                index.size(), System.currentTimeMillis() - start);
+    }
+}
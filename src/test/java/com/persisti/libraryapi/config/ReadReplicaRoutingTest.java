@@ -0,0 +1,104 @@
+package com.persisti.libraryapi.config;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Boots the performance profile with a replica pool. The replica logs in as a user that may only read, so
+ * a write routed to it fails instead of passing unnoticed against the same database. The requests start
+ * with a read-only lookup, so they also check that no request keeps that replica connection for its writes.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTest.URL,
+        "spring.datasource.hikari.connection-init-sql=CREATE USER IF NOT EXISTS READER PASSWORD 'reader';"
+                + " GRANT SELECT ON SCHEMA PUBLIC TO READER",
+        "spring.datasource.hikari.minimum-idle=2",
+        "application.datasource.replica.jdbc-url=" + ReadReplicaRoutingTest.URL,
+        "application.datasource.replica.username=READER",
+        "application.datasource.replica.password=reader",
+        "application.datasource.replica.minimum-idle=2"
+})
+@ActiveProfiles({"performance", "test"})
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+
+    static final String URL = "jdbc:h2:mem:routing;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertThat(readOnly.execute(status -> user())).isEqualTo("READER");
+        assertThat(new TransactionTemplate(transactionManager).execute(status -> user())).isEqualTo("SA");
+    }
+
+    @Test
+    void bookUpdateAfterLookupWritesToThePrimary() throws Exception {
+        Book book = Fixtures.book(bookService);
+
+        mvc.perform(put("/api/books/" + book.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"title\":\"Routed\",\"author\":\"Primary\",\"isbn\":\"" + book.getIsbn() + "\"}"))
+                .andExpect(status().isOk());
+
+        assertThat(jdbc.queryForObject("SELECT title FROM book WHERE id = ?", String.class, book.getId()))
+                .isEqualTo("Routed");
+    }
+
+    @Test
+    void loanAfterIsbnLookupWritesToThePrimary() throws Exception {
+        Book book = Fixtures.book(bookService);
+
+        mvc.perform(post("/api/loans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"isbn\":\"" + book.getIsbn() + "\",\"customer\":\"routing\",\"email\":\"routing@email.com\"}"))
+                .andExpect(status().isCreated());
+
+        assertThat(jdbc.queryForObject("SELECT disponivel FROM book WHERE id = ?", Boolean.class, book.getId()))
+                .isFalse();
+    }
+
+    private String user() {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getUserName();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
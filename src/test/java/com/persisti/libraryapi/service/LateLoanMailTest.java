@@ -0,0 +1,148 @@
+package com.persisti.libraryapi.service;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.mail.Address;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Runs the late-loan mailer against an in-process SMTP server, with chunks small enough for one customer's
+ * loans to be spread over several chunks.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:mail;DB_CLOSE_DELAY=-1",
+        "application.mail.lateloans.enabled=true",
+        "application.mail.lateloans.chunk-size=2",
+        "application.mail.max-attempts=1"
+})
+@ActiveProfiles({"test", "localmail"})
+class LateLoanMailTest {
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @SpyBean
+    private EmailService emailService;
+
+    private GreenMail smtp;
+
+    @BeforeEach
+    void startSmtp() {
+        smtp = new GreenMail(ServerSetupTest.SMTP);
+        smtp.start();
+    }
+
+    @AfterEach
+    void stopSmtp() {
+        smtp.stop();
+    }
+
+    @Test
+    void everyLateCustomerGetsOneEmailAndAllTheirLoansAreMarked() throws MessagingException {
+        String many = "many-" + System.nanoTime();
+        String single = "single-" + System.nanoTime();
+        List<Loan> loans = lateLoans(many, single, many, many);
+
+        scheduleService.sendMailToLateLoans();
+
+        assertThat(received(many)).isEqualTo(1);
+        assertThat(received(single)).isEqualTo(1);
+        loans.forEach(loan -> assertThat(noticeSent(loan)).as("loan of %s", loan.getCustomer()).isTrue());
+    }
+
+    /**
+     * The first chunk's email to a customer fails slowly, so the next chunk finds the customer claimed while
+     * that send is still running; none of the customer's loans may be marked.
+     */
+    @Test
+    void loansOfACustomerWhoseEmailFailedAreNotMarked() throws MessagingException {
+        String failing = "failing-" + System.nanoTime();
+        String reachable = "reachable-" + System.nanoTime();
+        String failingEmail = failing + "@email.com";
+        List<Loan> loans = lateLoans(failing, reachable, failing, failing);
+        doAnswer(invocation -> {
+            Collection<String> recipients = invocation.getArgument(1);
+            if (!recipients.contains(failingEmail)) {
+                return invocation.callRealMethod();
+            }
+            Thread.sleep(500);
+            List<String> others = new ArrayList<>(recipients);
+            others.remove(failingEmail);
+            Set<String> unreachable = new HashSet<>();
+            if (!others.isEmpty()) {
+                unreachable.addAll(emailService.sendMails(invocation.getArgument(0), others));
+            }
+            unreachable.add(failingEmail);
+            return unreachable;
+        }).when(emailService).sendMails(anyString(), any());
+
+        scheduleService.sendMailToLateLoans();
+
+        assertThat(received(failing)).isZero();
+        assertThat(received(reachable)).isEqualTo(1);
+        for (Loan loan : loans) {
+            assertThat(noticeSent(loan)).as("loan of %s", loan.getCustomer())
+                    .isEqualTo(loan.getCustomer().equals(reachable));
+        }
+    }
+
+    private List<Loan> lateLoans(String... customers) {
+        LocalDate late = LocalDate.now().minusDays(10);
+        List<Loan> loans = new ArrayList<>();
+        for (String customer : customers) {
+            loans.add(Fixtures.loan(loanService, Fixtures.book(bookService), customer, late, false));
+        }
+        return loans;
+    }
+
+    private long received(String customer) throws MessagingException {
+        long count = 0;
+        for (MimeMessage message : smtp.getReceivedMessages()) {
+            Address[] recipients = message.getAllRecipients();
+            if (Arrays.stream(recipients).anyMatch(address -> address.toString().equals(customer + "@email.com"))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean noticeSent(Loan loan) {
+        Integer marked = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM loan WHERE id = ? AND aviso_atraso_enviado_em IS NOT NULL",
+                Integer.class, loan.getId());
+        return marked != null && marked == 1;
+    }
+}
@@ -0,0 +1,112 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.exception.BusinessException;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Many threads borrowing the same book at once: exactly one of them is admitted, the others are told the
+ * book is already loaned, and the book never has more than one open loan.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanAdmissionConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 20;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void onlyOneConcurrentLoanOfABookIsAdmitted() throws Exception {
+        Book book = Fixtures.book(bookService);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Loan> admitted = borrowConcurrently(book);
+
+            assertThat(admitted).as("admitted loans in round %d", round).hasSize(1);
+            assertThat(openLoans(book)).as("open loans in round %d", round).isEqualTo(1);
+
+            Loan loan = admitted.get(0);
+            loan.setReturned(true);
+            loanService.update(loan);
+            assertThat(openLoans(book)).isZero();
+        }
+    }
+
+    private List<Loan> borrowConcurrently(Book book) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Loan>>> attempts = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            String customer = "concurrent-" + i;
+            Callable<Optional<Loan>> attempt = () -> {
+                start.await();
+                try {
+                    return Optional.of(loanService.save(Loan.builder()
+                            .book(book)
+                            .customer(customer)
+                            .customerEmail(customer + "@email.com")
+                            .loanDate(LocalDate.now())
+                            .build()));
+                } catch (BusinessException e) {
+                    assertThat(e.getMessage()).isEqualTo("Book already loaned");
+                    return Optional.empty();
+                }
+            };
+            attempts.add(executor.submit(attempt));
+        }
+        start.countDown();
+
+        List<Loan> admitted = new ArrayList<>();
+        for (Future<Optional<Loan>> attempt : attempts) {
+            attempt.get(30, TimeUnit.SECONDS).ifPresent(admitted::add);
+        }
+        return admitted;
+    }
+
+    private int openLoans(Book book) {
+        Integer open = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM loan WHERE id_book = ? AND devolvido = FALSE", Integer.class, book.getId());
+        return open == null ? 0 : open;
+    }
+}
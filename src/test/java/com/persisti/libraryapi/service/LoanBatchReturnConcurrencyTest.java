@@ -0,0 +1,120 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A batch return racing single returns that loan the book again right away: every loan is returned once,
+ * and the batch never frees a book that already has its next loan.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanBatchReturnConcurrencyTest {
+
+    private static final int BOOKS = 12;
+    private static final int ROUNDS = 10;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private LoanStatisticsService statistics;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(BOOKS + 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchReturnRacingReturnAndReloanKeepsOneOpenLoanPerBook() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Book> books = new ArrayList<>();
+            List<Loan> loans = new ArrayList<>();
+            for (int i = 0; i < BOOKS; i++) {
+                Book book = Fixtures.book(bookService);
+                books.add(book);
+                loans.add(Fixtures.loan(loanService, book, "batch-" + round, LocalDate.now(), false));
+            }
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> {
+                start.await();
+                return loanService.returnAll(loans.stream().map(Loan::getId).collect(Collectors.toList()));
+            }));
+            for (int i = 0; i < BOOKS; i++) {
+                Loan loan = loans.get(i);
+                Book book = books.get(i);
+                tasks.add(executor.submit(() -> {
+                    start.await();
+                    loanService.update(loan.toBuilder().returned(true).build());
+                    return Fixtures.loan(loanService, book, "next", LocalDate.now(), false);
+                }));
+            }
+            start.countDown();
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+
+            statistics.flush();
+            for (int i = 0; i < BOOKS; i++) {
+                Book book = books.get(i);
+                assertThat(openLoans(book)).isEqualTo(1);
+                assertThat(available(book)).isFalse();
+                assertThat(loanEvents(loans.get(i), "UPDATED")).isEqualTo(1);
+                assertThat(statistics.getBookStats(book.getId()).getActiveLoans()).isEqualTo(1);
+            }
+        }
+    }
+
+    private int openLoans(Book book) {
+        Integer open = jdbc.queryForObject("SELECT COUNT(*) FROM loan WHERE id_book_ativo = ?",
+                Integer.class, book.getId());
+        return open == null ? 0 : open;
+    }
+
+    private boolean available(Book book) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT disponivel FROM book WHERE id = ?", Boolean.class, book.getId()));
+    }
+
+    private int loanEvents(Loan loan, String type) {
+        Integer events = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM outbox_event WHERE agregado = 'LOAN' AND id_agregado = ? AND tipo = ?",
+                Integer.class, loan.getId(), type);
+        return events == null ? 0 : events;
+    }
+}
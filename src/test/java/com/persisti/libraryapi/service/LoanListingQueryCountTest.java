@@ -0,0 +1,108 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.config.metrics.SqlStatementCounter;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loan listings are answered by one join query per page, however many loans the page holds, plus the count
+ * query when the page is full.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanListingQueryCountTest {
+
+    private static final int LOANS = 5;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    private Book book;
+    private String customer;
+
+    @BeforeEach
+    void setUp() {
+        book = Fixtures.book(bookService);
+        customer = "listing-" + book.getIsbn();
+        for (int i = 0; i < LOANS; i++) {
+            Fixtures.loan(loanService, book, customer, LocalDate.now().minusDays(i), true);
+        }
+    }
+
+    @Test
+    void loansByBookTakeOneStatement() {
+        SqlStatementCounter.reset();
+        Page<LoanSummary> page = loanService.getLoansByBook(book, false, PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).hasSize(LOANS);
+        assertThat(page.getContent()).allMatch(loan -> book.getIsbn().equals(loan.getIsbn()));
+        assertThat(SqlStatementCounter.get()).isEqualTo(1);
+    }
+
+    @Test
+    void fullPageOfLoansByBookAddsTheCount() {
+        SqlStatementCounter.reset();
+        Page<LoanSummary> page = loanService.getLoansByBook(book, false, PageRequest.of(0, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(LOANS);
+        assertThat(SqlStatementCounter.get()).isEqualTo(2);
+    }
+
+    @Test
+    void loansByBookWithHistoryTakeOneStatementPerTable() {
+        SqlStatementCounter.reset();
+        Page<LoanSummary> page = loanService.getLoansByBook(book, true, PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).hasSize(LOANS);
+        assertThat(SqlStatementCounter.get()).isEqualTo(2);
+    }
+
+    @Test
+    void loansByBookCursorTakesOneStatement() {
+        SqlStatementCounter.reset();
+        Slice<LoanSummary> slice = loanService.getLoansByBookAfter(book, false, 0L, 20);
+
+        assertThat(slice.getContent()).hasSize(LOANS);
+        assertThat(SqlStatementCounter.get()).isEqualTo(1);
+    }
+
+    @Test
+    void searchByCustomerTakesOneStatement() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().customer(customer).includeHistory(false).build();
+
+        SqlStatementCounter.reset();
+        Page<LoanSummary> page = loanService.find(filter, PageRequest.of(0, 20));
+
+        assertThat(page.getContent()).hasSize(LOANS);
+        assertThat(page.getContent()).allMatch(loan -> book.getTitle().equals(loan.getTitle()));
+        assertThat(SqlStatementCounter.get()).isEqualTo(1);
+    }
+
+    @Test
+    void cursorSearchByCustomerTakesOneStatement() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().customer(customer).includeHistory(false).build();
+
+        SqlStatementCounter.reset();
+        Slice<LoanSummary> slice = loanService.findAfter(filter, 0L, 20);
+
+        assertThat(slice.getContent()).hasSize(LOANS);
+        assertThat(SqlStatementCounter.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.support.Fixtures;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Returns made from stale copies of a loan, as the controller makes them from the cached loan: only the
+ * first one changes anything.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanReturnConcurrencyTest {
+
+    private static final int THREADS = 6;
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void concurrentReturnsOfOneLoanAreAppliedOnce() throws Exception {
+        Book book = Fixtures.book(bookService);
+        Loan loan = Fixtures.loan(loanService, book, "returning", LocalDate.now(), false);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Loan>> returns = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                Loan stale = loan.toBuilder().returned(true).build();
+                returns.add(executor.submit(() -> {
+                    start.await();
+                    return loanService.update(stale);
+                }));
+            }
+            start.countDown();
+            for (Future<Loan> result : returns) {
+                assertThat(result.get(30, TimeUnit.SECONDS).getReturned()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(available(book)).isTrue();
+        assertThat(loanEvents(loan, "UPDATED")).isEqualTo(1);
+    }
+
+    @Test
+    void staleReturnDoesNotFreeABookLoanedAgain() {
+        Book book = Fixtures.book(bookService);
+        Loan first = Fixtures.loan(loanService, book, "first", LocalDate.now(), false);
+        loanService.update(first.toBuilder().returned(true).build());
+        Fixtures.loan(loanService, book, "second", LocalDate.now(), false);
+
+        loanService.update(first.toBuilder().returned(true).build());
+
+        assertThat(available(book)).isFalse();
+        assertThat(loanEvents(first, "UPDATED")).isEqualTo(1);
+    }
+
+    private boolean available(Book book) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT disponivel FROM book WHERE id = ?", Boolean.class, book.getId()));
+    }
+
+    private int loanEvents(Loan loan, String type) {
+        Integer events = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM outbox_event WHERE agregado = 'LOAN' AND id_agregado = ? AND tipo = ?",
+                Integer.class, loan.getId(), type);
+        return events == null ? 0 : events;
+    }
+}
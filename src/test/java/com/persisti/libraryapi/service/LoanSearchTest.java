@@ -0,0 +1,149 @@
+package com.persisti.libraryapi.service;
+
+import com.persisti.libraryapi.api.dto.LoanFilterDTO;
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.projection.LoanSummary;
+import com.persisti.libraryapi.support.Fixtures;
+import com.persisti.libraryapi.support.RecordingStatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loan searches keep isbn OR customer semantics, and the statements Hibernate generates for each filter
+ * are planned by H2 without a table scan.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoanSearchTest {
+
+    private static final String TABLE_SCAN = "tableScan";
+
+    @Autowired
+    private LoanService loanService;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Book book;
+    private Book otherBook;
+    private String customer;
+
+    @BeforeEach
+    void setUp() {
+        book = Fixtures.book(bookService);
+        otherBook = Fixtures.book(bookService);
+        customer = "search-" + book.getIsbn();
+        LocalDate today = LocalDate.now();
+        Fixtures.loan(loanService, book, "someone-else", today.minusDays(3), true);
+        Fixtures.loan(loanService, book, customer, today.minusDays(2), true);
+        Fixtures.loan(loanService, otherBook, customer, today.minusDays(1), false);
+    }
+
+    @Test
+    void isbnAndCustomerFindLoansMatchingEither() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn(book.getIsbn()).customer(customer).build();
+
+        Page<LoanSummary> page = loanService.find(filter, PageRequest.of(0, 20));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(LoanSummary::getId).doesNotHaveDuplicates();
+        assertThat(loanService.findAfter(filter, 0L, 20).getContent()).hasSize(3);
+    }
+
+    @Test
+    void unionPagesFollowTheRequestedOrder() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn(book.getIsbn()).customer(customer).build();
+        PageRequest byDate = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "loanDate"));
+
+        Page<LoanSummary> first = loanService.find(filter, byDate);
+        Page<LoanSummary> second = loanService.find(filter, byDate.next());
+
+        assertThat(first.getTotalElements()).isEqualTo(3);
+        assertThat(first.getContent()).extracting(LoanSummary::getBookId)
+                .containsExactly(otherBook.getId(), book.getId());
+        assertThat(first.getContent().get(1).getCustomer()).isEqualTo(customer);
+        assertThat(second.getContent()).extracting(LoanSummary::getCustomer).containsExactly("someone-else");
+    }
+
+    @Test
+    void unknownIsbnStillMatchesTheCustomer() {
+        LoanFilterDTO filter = LoanFilterDTO.builder().isbn("unknown-isbn").customer(customer).build();
+
+        assertThat(loanService.find(filter, PageRequest.of(0, 20)).getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void otherFiltersNarrowTheUnion() {
+        LoanFilterDTO filter = LoanFilterDTO.builder()
+                .isbn(book.getIsbn())
+                .customer(customer)
+                .returned(true)
+                .includeHistory(false)
+                .build();
+
+        assertThat(loanService.find(filter, PageRequest.of(0, 20)).getContent())
+                .extracting(LoanSummary::getBookId)
+                .containsOnly(book.getId());
+    }
+
+    @Test
+    void searchesUseTheLoanIndexes() {
+        LocalDate today = LocalDate.now();
+        assertIndexed(LoanFilterDTO.builder().customer(customer).build());
+        assertIndexed(LoanFilterDTO.builder().isbn(book.getIsbn()).build());
+        assertIndexed(LoanFilterDTO.builder().isbn(book.getIsbn()).customer(customer).build());
+        assertIndexed(LoanFilterDTO.builder().loanDateFrom(today.minusDays(7)).loanDateTo(today).build());
+        assertIndexed(LoanFilterDTO.builder().returned(false).loanDateTo(today).includeHistory(false).build());
+    }
+
+    private void assertIndexed(LoanFilterDTO filter) {
+        RecordingStatementInspector.start();
+        loanService.find(filter, PageRequest.of(0, 20));
+        loanService.findAfter(filter, 0L, 20);
+        List<String> searches = RecordingStatementInspector.statements().stream()
+                .filter(sql -> sql.contains(" loan"))
+                .collect(Collectors.toList());
+
+        assertThat(searches).isNotEmpty();
+        for (String sql : searches) {
+            assertThat(explain(sql)).as("plan of %s", sql).doesNotContain(TABLE_SCAN);
+        }
+    }
+
+    /**
+     * Plans are made when the statement is prepared, so the parameters are only bound to let EXPLAIN run.
+     */
+    private String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameters = explain.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameters; i++) {
+                    explain.setObject(i, null);
+                }
+                try (ResultSet plan = explain.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package com.persisti.libraryapi.support;
+
+import com.persisti.libraryapi.model.entity.Book;
+import com.persisti.libraryapi.model.entity.Loan;
+import com.persisti.libraryapi.service.BookService;
+import com.persisti.libraryapi.service.LoanService;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates books and loans through the services. Tests share one application context and database, so
+ * every book gets a fresh isbn and tests pick their own customers.
+ */
+public final class Fixtures {
+
+    private static final AtomicLong ISBNS = new AtomicLong(System.nanoTime() % 1_000_000_000L);
+
+    private Fixtures() {
+    }
+
+    public static Book book(BookService books) {
+        String isbn = String.format("%013d", ISBNS.incrementAndGet());
+        return books.save(Book.builder().title("Title " + isbn).author("Author").isbn(isbn).build());
+    }
+
+    public static Loan loan(LoanService loans, Book book, String customer, LocalDate loanDate, boolean returned) {
+        return loans.save(Loan.builder()
+                .book(book)
+                .customer(customer)
+                .customerEmail(customer + "@email.com")
+                .loanDate(loanDate)
+                .returned(returned)
+                .build());
+    }
+}
@@ -0,0 +1,30 @@
+package com.persisti.libraryapi.support;
+
+import com.persisti.libraryapi.config.metrics.SqlStatementCounter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SqlStatementCounter} that also keeps the text of the statements prepared on the current thread,
+ * so tests can inspect the SQL Hibernate generated.
+ */
+public class RecordingStatementInspector extends SqlStatementCounter {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql);
+        return super.inspect(sql);
+    }
+
+    public static void start() {
+        STATEMENTS.get().clear();
+        SqlStatementCounter.reset();
+    }
+
+    public static List<String> statements() {
+        return new ArrayList<>(STATEMENTS.get());
+    }
+}